@@ -0,0 +1,81 @@
+package com.desafiotecnico.desafiomagalu.benchmark;
+
+import com.desafiotecnico.desafiomagalu.DesafiomagaluApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Sobe a aplicação (sem servidor web, a menos que se peça o contrário) com um H2 em memória exclusivo e sem log de SQL, para os benchmarks que
+ * passam pelo banco.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Como {@link #start(String...)}, mas com o Tomcat embutido em uma porta livre; a porta fica em
+     * {@link #port(ConfigurableApplicationContext)}.
+     */
+    public static ConfigurableApplicationContext startWeb(String... properties) {
+        String[] withPort = Arrays.copyOf(properties, properties.length + 1);
+        withPort[properties.length] = "server.port=0";
+        return start(WebApplicationType.SERVLET, withPort);
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    /**
+     * As propriedades vão como argumentos de linha de comando ({@code --chave=valor}): propriedades padrão do
+     * builder perderiam para as mesmas chaves do {@code application.properties}.
+     */
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        String[] args = Stream.concat(
+                        Stream.of(
+                                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+                                "spring.jpa.show-sql=false",
+                                "logging.level.root=WARN"),
+                        Arrays.stream(properties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(DesafiomagaluApplication.class)
+                .web(type)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    public static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "legacy.txt", "text/plain", content);
+    }
+
+    /**
+     * Esvazia todas as tabelas da aplicação, para que cada upload medido parta do banco vazio.
+     */
+    public static void truncateAll(ConfigurableApplicationContext context) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        List<String> tables = jdbc.queryForList(
+                "SELECT table_name FROM information_schema.tables WHERE table_schema = 'PUBLIC'", String.class);
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            for (String table : tables) {
+                jdbc.execute("TRUNCATE TABLE \"" + table + "\"");
+            }
+        } finally {
+            jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+}
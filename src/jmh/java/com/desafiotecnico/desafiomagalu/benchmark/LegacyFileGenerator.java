@@ -0,0 +1,73 @@
+package com.desafiotecnico.desafiomagalu.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Gera arquivos no layout legado (95 colunas + '\n') de forma determinística: a mesma semente e a mesma
+ * quantidade de linhas produzem sempre os mesmos bytes, para que os números dos benchmarks sejam comparáveis
+ * entre versões.
+ * <p>
+ * Proporções aproximadas de um arquivo real: ~1 usuário a cada 20 linhas, ~4 pedidos por usuário, produtos
+ * entre 10 mil ids e datas espalhadas por 2021.
+ */
+public final class LegacyFileGenerator {
+
+    public static final long DEFAULT_SEED = 20_211_201L;
+    public static final int LINE_LENGTH = 96;
+    public static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    public static final int DAYS = 365;
+
+    private LegacyFileGenerator() {
+    }
+
+    public static byte[] generate(int lines) {
+        return generate(lines, DEFAULT_SEED);
+    }
+
+    public static byte[] generate(int lines, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int users = Math.max(1, lines / 20);
+
+        byte[] out = new byte[lines * LINE_LENGTH];
+        StringBuilder line = new StringBuilder(LINE_LENGTH);
+        for (int i = 0; i < lines; i++) {
+            long userId = 1 + random.nextInt(users);
+            long orderId = userId * 10 + random.nextInt(4);
+            LocalDate date = FIRST_DAY.plusDays(orderId % DAYS);
+
+            line.setLength(0);
+            pad(line, Long.toString(userId), 10, '0', true);
+            pad(line, "Usuario " + userId, 45, ' ', false);
+            pad(line, Long.toString(orderId), 10, '0', true);
+            pad(line, Long.toString(1 + random.nextInt(10_000)), 10, '0', true);
+            long cents = random.nextLong(1_000_000);
+            pad(line, cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100, 12, '0', true);
+            line.append(date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth());
+            line.append('\n');
+
+            byte[] bytes = line.toString().getBytes(StandardCharsets.ISO_8859_1);
+            System.arraycopy(bytes, 0, out, i * LINE_LENGTH, LINE_LENGTH);
+        }
+        return out;
+    }
+
+    /**
+     * Linhas sem o terminador, para benchmarks que parseiam uma {@code String} por vez.
+     */
+    public static String[] lines(int lines, long seed) {
+        byte[] content = generate(lines, seed);
+        String[] result = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            result[i] = new String(content, i * LINE_LENGTH, LINE_LENGTH - 1, StandardCharsets.ISO_8859_1);
+        }
+        return result;
+    }
+
+    private static void pad(StringBuilder sb, String value, int width, char fill, boolean left) {
+        if (!left) sb.append(value);
+        for (int i = value.length(); i < width; i++) sb.append(fill);
+        if (left) sb.append(value);
+    }
+}
@@ -0,0 +1,134 @@
+package com.desafiotecnico.desafiomagalu.controller;
+
+import com.desafiotecnico.desafiomagalu.benchmark.BenchmarkContext;
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import com.desafiotecnico.desafiomagalu.service.FileProcessingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga concorrente via HTTP contra o Tomcat embutido, com e sem {@code spring.threads.virtual.enabled}.
+ * Cada invocação dispara {@value #CLIENTS} requisições simultâneas — consultas por intervalo de datas com os
+ * caches desligados (todas passam pelo pool do Hikari) e, a cada {@value #UPLOAD_EVERY}, um upload síncrono —
+ * e espera todas as respostas; o resultado sai em requisições por segundo.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ConcurrentLoadBenchmark.CLIENTS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ConcurrentLoadBenchmark {
+
+    static final int CLIENTS = 400;
+    static final int UPLOAD_EVERY = 20;
+
+    private static final int LINES = 20_000;
+    private static final int UPLOAD_LINES = 500;
+    private static final int RANGE_DAYS = 7;
+    private static final String BOUNDARY = "jmh-boundary";
+
+    @Param({"false", "true"})
+    public boolean virtual;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String baseUrl;
+    private byte[][] uploads;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.startWeb(
+                "spring.threads.virtual.enabled=" + virtual,
+                "app.query.cache.enabled=false",
+                "app.query.response-cache.enabled=false",
+                "app.ingestion.deduplicate=false");
+        FileProcessingService service = context.getBean(FileProcessingService.class);
+        service.processFile(BenchmarkContext.upload(LegacyFileGenerator.generate(LINES)));
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/api/v1/orders";
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+
+        // Os arquivos de upload são ingeridos uma vez antes da medição: durante a carga eles só regravam linhas
+        // existentes, sem dois uploads simultâneos tentando inserir o mesmo id.
+        uploads = new byte[8][];
+        for (int i = 0; i < uploads.length; i++) {
+            byte[] content = LegacyFileGenerator.generate(UPLOAD_LINES, LegacyFileGenerator.DEFAULT_SEED + i);
+            service.processFile(BenchmarkContext.upload(content));
+            uploads[i] = multipart(content);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int mixedLoad() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            int i = next++;
+            HttpRequest request = i % UPLOAD_EVERY == 0 ? upload(i) : query(i);
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int failures = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() >= 400) failures++;
+        }
+        if (failures > 0) {
+            throw new IllegalStateException(failures + " requisições falharam");
+        }
+        return responses.size();
+    }
+
+    // ---------------- helpers ----------------
+
+    private HttpRequest query(int i) {
+        LocalDate start = LegacyFileGenerator.FIRST_DAY.plusDays(Math.floorMod(i * 31, LegacyFileGenerator.DAYS - RANGE_DAYS));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "?startDate=" + start + "&endDate=" + start.plusDays(RANGE_DAYS - 1)))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest upload(int i) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(uploads[Math.floorMod(i / UPLOAD_EVERY, uploads.length)]))
+                .build();
+    }
+
+    private static byte[] multipart(byte[] content) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"legacy.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de parsear uma linha: {@link LegacyLineParser} (String) contra {@link FixedWidthRecordParser} (bytes).
+ * As linhas são percorridas em rodízio para não medir sempre a mesma entrada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LegacyLineParserBenchmark {
+
+    private static final int LINES = 4_096;
+
+    private final LegacyLineParser lineParser = new LegacyLineParser();
+    private final FixedWidthRecordParser recordParser = new FixedWidthRecordParser(StandardCharsets.ISO_8859_1);
+    private final LegacyRecord record = new LegacyRecord();
+
+    private String[] lines;
+    private byte[] content;
+    private int next;
+
+    @Setup
+    public void setup() {
+        lines = LegacyFileGenerator.lines(LINES, LegacyFileGenerator.DEFAULT_SEED);
+        content = LegacyFileGenerator.generate(LINES);
+    }
+
+    @Benchmark
+    public ParsedLine lineParser() {
+        int i = next++ & (LINES - 1);
+        return lineParser.parse(lines[i]);
+    }
+
+    @Benchmark
+    public long recordParser() {
+        int i = next++ & (LINES - 1);
+        recordParser.parse(content, i * LegacyFileGenerator.LINE_LENGTH, FixedWidthRecordParser.RECORD_LENGTH, record);
+        return record.getValueCents() + record.getEpochDay();
+    }
+}
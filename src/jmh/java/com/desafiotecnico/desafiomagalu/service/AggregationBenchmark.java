@@ -0,0 +1,76 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.parser.FixedWidthRecordParser;
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser;
+import com.desafiotecnico.desafiomagalu.parser.LegacyRecordReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laço de leitura + agregação do {@code processFile} (sem banco) sobre arquivos sintéticos, nos três caminhos
+ * de parse: texto ({@link LegacyLineParser}), bytes ({@link LegacyRecordReader}) e paralelo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int lines;
+
+    private byte[] content;
+    private LegacyLineParser lineParser;
+    private FixedWidthRecordParser recordParser;
+    private ParallelFileParser parallelParser;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        content = LegacyFileGenerator.generate(lines);
+        lineParser = new LegacyLineParser();
+        recordParser = new FixedWidthRecordParser(StandardCharsets.ISO_8859_1);
+        parallelParser = new ParallelFileParser(recordParser, new IngestionProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelParser.shutdown();
+    }
+
+    @Benchmark
+    public OrderAggregation textParser() throws IOException {
+        OrderAggregation aggregation = new OrderAggregation();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(content), StandardCharsets.ISO_8859_1))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                aggregation.add(lineParser.parse(line));
+            }
+        }
+        return aggregation;
+    }
+
+    @Benchmark
+    public OrderAggregation byteParser() throws IOException {
+        OrderAggregation aggregation = new OrderAggregation();
+        new LegacyRecordReader(recordParser).read(new ByteArrayInputStream(content), aggregation::add);
+        return aggregation;
+    }
+
+    @Benchmark
+    public OrderAggregation parallelParser() {
+        return parallelParser.parse(ByteBuffer.wrap(content));
+    }
+}
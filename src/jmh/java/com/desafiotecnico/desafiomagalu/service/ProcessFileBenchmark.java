@@ -0,0 +1,68 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.benchmark.BenchmarkContext;
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.dto.IngestionSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload de ponta a ponta contra o H2 em memória: parse, agregação, consultas de existência e batches JDBC.
+ * O banco é esvaziado antes de cada chamada, então toda execução mede a carga inicial (só inserts).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ProcessFileBenchmark {
+
+    @Param({"10000", "100000"})
+    public int lines;
+
+    /** {@code text}: LegacyLineParser; {@code bytes}: FixedWidthRecordParser; {@code parallel}: parse paralelo. */
+    @Param({"text", "bytes", "parallel"})
+    public String parser;
+
+    private ConfigurableApplicationContext context;
+    private FileProcessingService service;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start();
+        service = context.getBean(FileProcessingService.class);
+
+        IngestionProperties properties = context.getBean(IngestionProperties.class);
+        properties.setFastParser(parser.equals("bytes"));
+        properties.setParallel(parser.equals("parallel"));
+
+        content = LegacyFileGenerator.generate(lines);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyDatabase() {
+        BenchmarkContext.truncateAll(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> processFile() {
+        return service.processFile(BenchmarkContext.upload(content));
+    }
+
+    @Benchmark
+    public IngestionSummaryDto processFileStreaming() {
+        return service.processFileStreaming(BenchmarkContext.upload(content));
+    }
+}
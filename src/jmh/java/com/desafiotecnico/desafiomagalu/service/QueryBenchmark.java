@@ -0,0 +1,70 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.benchmark.BenchmarkContext;
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code query()} para cada modo de filtro sobre uma base carregada uma única vez. Consultas por id e por
+ * intervalo variam a chave a cada chamada; {@code cache} liga ou desliga o {@code OrderCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final int LINES = 100_000;
+    private static final int RANGE_DAYS = 7;
+
+    @Param({"all", "orderId", "dateRange"})
+    public String filter;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private FileProcessingService service;
+    private long[] orderIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start("app.query.cache.enabled=" + cache);
+        service = context.getBean(FileProcessingService.class);
+        service.processFile(BenchmarkContext.upload(LegacyFileGenerator.generate(LINES)));
+
+        orderIds = context.getBean(JdbcTemplate.class)
+                .queryForList("SELECT order_id FROM orders ORDER BY order_id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> query() {
+        int i = next++;
+        return switch (filter) {
+            case "orderId" -> service.query(Optional.of(orderIds[Math.floorMod(i * 7_919, orderIds.length)]),
+                    Optional.empty(), Optional.empty());
+            case "dateRange" -> {
+                LocalDate start = LegacyFileGenerator.FIRST_DAY.plusDays(Math.floorMod(i * 31, LegacyFileGenerator.DAYS - RANGE_DAYS));
+                yield service.query(Optional.empty(), Optional.of(start), Optional.of(start.plusDays(RANGE_DAYS - 1)));
+            }
+            default -> service.query(Optional.empty(), Optional.empty(), Optional.empty());
+        };
+    }
+}
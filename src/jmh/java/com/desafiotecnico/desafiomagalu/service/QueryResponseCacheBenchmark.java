@@ -0,0 +1,55 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.benchmark.BenchmarkContext;
+import com.desafiotecnico.desafiomagalu.benchmark.LegacyFileGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polling de painel: a mesma consulta por intervalo repetida sem uploads no meio. Com {@code responseCache}
+ * desligado cada chamada monta os DTOs (a partir do {@code OrderCache}) e serializa o JSON; ligado, é uma busca
+ * no mapa de respostas prontas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class QueryResponseCacheBenchmark {
+
+    private static final int LINES = 100_000;
+    private static final int RANGE_DAYS = 7;
+
+    @Param({"true", "false"})
+    public boolean responseCache;
+
+    private ConfigurableApplicationContext context;
+    private QueryResponseCache cache;
+    private Optional<LocalDate> start;
+    private Optional<LocalDate> end;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start("app.query.response-cache.enabled=" + responseCache);
+        context.getBean(FileProcessingService.class)
+                .processFile(BenchmarkContext.upload(LegacyFileGenerator.generate(LINES)));
+        cache = context.getBean(QueryResponseCache.class);
+        start = Optional.of(LegacyFileGenerator.FIRST_DAY);
+        end = Optional.of(LegacyFileGenerator.FIRST_DAY.plusDays(RANGE_DAYS - 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] poll() {
+        return cache.find(Optional.empty(), start, end).json();
+    }
+}
@@ -0,0 +1,23 @@
+package com.desafiotecnico.desafiomagalu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.http")
+public class HttpProperties {
+
+    /**
+     * Requisições simultâneas atendidas em {@code /api/v1/**}. Com 0, usa o tamanho do pool do Hikari menos os
+     * workers de jobs ({@code app.ingestion.jobs.workers}), para que toda requisição admitida tenha uma conexão.
+     */
+    private int maxConcurrentRequests = 0;
+
+    /**
+     * Tempo que uma requisição espera por uma vaga antes de ser recusada com {@code 503}; deve ficar abaixo do
+     * {@code connection-timeout} do Hikari.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(2);
+}
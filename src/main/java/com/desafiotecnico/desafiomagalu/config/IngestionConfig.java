@@ -0,0 +1,16 @@
+package com.desafiotecnico.desafiomagalu.config;
+
+import com.desafiotecnico.desafiomagalu.parser.FixedWidthRecordParser;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({IngestionProperties.class, QueryProperties.class})
+public class IngestionConfig {
+
+    @Bean
+    public FixedWidthRecordParser fixedWidthRecordParser(IngestionProperties properties) {
+        return new FixedWidthRecordParser(properties.getCharset());
+    }
+}
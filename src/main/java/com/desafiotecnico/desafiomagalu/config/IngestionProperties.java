@@ -0,0 +1,110 @@
+package com.desafiotecnico.desafiomagalu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.ingestion")
+public class IngestionProperties {
+
+    /**
+     * Quantidade máxima de linhas agregadas em memória antes de descarregar o chunk no banco (modo streaming).
+     */
+    private int chunkSize = 5_000;
+
+    /**
+     * Teto estimado de memória ocupada por um chunk; atingido antes de {@code chunkSize}, o chunk é descarregado.
+     */
+    private DataSize maxChunkMemory = DataSize.ofMegabytes(32);
+
+    /**
+     * Usa o {@code FixedWidthRecordParser} (bytes, sem decodificar a linha) no lugar do {@code LegacyLineParser}.
+     */
+    private boolean fastParser = false;
+
+    /**
+     * Charset do campo nome no parser de bytes; o layout posicional exige um encoding de um byte por caractere.
+     */
+    private Charset charset = StandardCharsets.ISO_8859_1;
+
+    /**
+     * Divide o arquivo em faixas alinhadas por linha e parseia cada faixa em paralelo (sempre com o parser de bytes).
+     */
+    private boolean parallel = false;
+
+    /**
+     * Número de threads do parse paralelo; {@code 0} usa a quantidade de processadores disponíveis.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Spoola o upload em disco e lê o conteúdo via {@code FileChannel.map} (sempre com o parser de bytes).
+     */
+    private boolean memoryMapped = false;
+
+    /**
+     * Tamanho mínimo do upload para usar o mapeamento em memória; arquivos menores seguem pelo {@code InputStream}.
+     */
+    private DataSize memoryMapThreshold = DataSize.ofMegabytes(16);
+
+    /**
+     * Modo tolerante: linhas inválidas são descartadas e registradas no relatório de rejeições (número da linha,
+     * campo, posição e motivo) em vez de abortar o upload.
+     */
+    private boolean lenient = false;
+
+    /**
+     * Quantidade máxima de linhas rejeitadas no modo tolerante; a seguinte aborta o upload.
+     */
+    private int maxRejectedLines = 1_000;
+
+    /**
+     * No modo streaming, grava e confirma cada chunk em uma transação própria em vez de uma transação para o
+     * arquivo inteiro. Uma falha no meio do arquivo mantém os chunks já confirmados; reenviar o arquivo pula os
+     * pedidos já gravados (ver {@code deduplicate}).
+     */
+    private boolean commitPerChunk = false;
+
+    /**
+     * Pula arquivos já ingeridos (SHA-256 do conteúdo) e pedidos cujo conteúdo não mudou desde a última gravação.
+     */
+    private boolean deduplicate = true;
+
+    /**
+     * Espera máxima por usuários/pedidos/produtos que outro upload em andamento está gravando; esgotada, o upload
+     * é abortado com 409.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Tamanho máximo do conteúdo de um upload compactado (gzip, zstd ou deflate) depois de descompactado;
+     * protege contra arquivos que se expandem muito além do que foi recebido.
+     */
+    private DataSize maxDecompressedSize = DataSize.ofGigabytes(2);
+
+    private final Jobs jobs = new Jobs();
+
+    @Data
+    public static class Jobs {
+
+        /**
+         * Threads que processam uploads assíncronos.
+         */
+        private int workers = 2;
+
+        /**
+         * Jobs aguardando execução; com a fila cheia novos uploads assíncronos recebem 429.
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * Jobs finalizados mantidos para consulta de status antes de serem descartados.
+         */
+        private int retained = 200;
+    }
+}
@@ -0,0 +1,65 @@
+package com.desafiotecnico.desafiomagalu.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "app.query")
+public class QueryProperties {
+
+    private final Cache cache = new Cache();
+
+    private final ResponseCache responseCache = new ResponseCache();
+
+    private final Warmup warmup = new Warmup();
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Responde consultas por {@code orderId} e por intervalo de datas a partir do cache em memória.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Quantidade máxima de pedidos montados mantidos em memória; acima disso os menos acessados são descartados.
+         */
+        private int maxOrders = 100_000;
+    }
+
+    @Data
+    public static class ResponseCache {
+
+        /**
+         * Guarda o JSON já serializado (e compactado com gzip) das consultas sem paginação, por filtro, enquanto
+         * nenhuma gravação alterar os dados.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Quantidade máxima de respostas guardadas; acima disso as menos acessadas são descartadas.
+         */
+        private int maxEntries = 256;
+
+        /**
+         * Respostas maiores que isso são servidas, mas não guardadas.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+    }
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * Ao subir a aplicação, atualiza as estatísticas do banco, percorre o índice de datas e carrega no cache os
+         * pedidos dos últimos {@code days} dias com dados.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Dias, contados a partir do pedido mais recente, pré-carregados no aquecimento.
+         */
+        private int days = 7;
+    }
+}
@@ -0,0 +1,41 @@
+package com.desafiotecnico.desafiomagalu.config;
+
+import com.desafiotecnico.desafiomagalu.controller.RequestLimitFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(HttpProperties.class)
+public class WebConfig {
+
+    /**
+     * Pool assumido quando o {@link DataSource} não é um Hikari (o padrão do próprio Hikari).
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public FilterRegistrationBean<RequestLimitFilter> requestLimitFilter(HttpProperties http,
+                                                                         IngestionProperties ingestion,
+                                                                         DataSource dataSource) {
+        int limit = http.getMaxConcurrentRequests();
+        if (limit <= 0) {
+            int poolSize = dataSource instanceof HikariDataSource hikari
+                    ? hikari.getMaximumPoolSize()
+                    : DEFAULT_POOL_SIZE;
+            limit = Math.max(1, poolSize - ingestion.getJobs().getWorkers());
+        }
+        log.info("Limite de requisições simultâneas na API: {}", limit);
+
+        FilterRegistrationBean<RequestLimitFilter> registration =
+                new FilterRegistrationBean<>(new RequestLimitFilter(limit, http.getAcquireTimeout()));
+        registration.addUrlPatterns("/api/v1/*");
+        return registration;
+    }
+}
@@ -1,8 +1,24 @@
 package com.desafiotecnico.desafiomagalu.controller;
 
+import com.desafiotecnico.desafiomagalu.dto.IngestionSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.OrderPageDto;
+import com.desafiotecnico.desafiomagalu.dto.OrderSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.SnapshotDto;
+import com.desafiotecnico.desafiomagalu.dto.UploadJobDto;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
 import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.exception.IngestionConflictException;
+import com.desafiotecnico.desafiomagalu.exception.InvalidCursorException;
+import com.desafiotecnico.desafiomagalu.exception.InvalidSnapshotException;
+import com.desafiotecnico.desafiomagalu.exception.JobQueueFullException;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
 import com.desafiotecnico.desafiomagalu.service.FileProcessingService;
+import com.desafiotecnico.desafiomagalu.service.IngestionProgress;
+import com.desafiotecnico.desafiomagalu.service.OrderJsonStreamWriter;
+import com.desafiotecnico.desafiomagalu.service.OrderSummaryService;
+import com.desafiotecnico.desafiomagalu.service.QueryResponseCache;
+import com.desafiotecnico.desafiomagalu.service.SnapshotService;
+import com.desafiotecnico.desafiomagalu.service.UploadJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,12 +26,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -26,15 +47,36 @@ import java.util.Optional;
 @Tag(name = "Pedidos", description = "Operações relacionadas ao upload e consulta de pedidos")
 public class OrderController {
 
+    static final String REJECTED_LINES_HEADER = "X-Rejected-Lines";
+
+    private static final String JOBS_PATH = "/api/v1/orders/jobs/";
+
     private final FileProcessingService fileProcessingService;
+    private final UploadJobService uploadJobService;
+    private final OrderJsonStreamWriter orderJsonStreamWriter;
+    private final OrderSummaryService orderSummaryService;
+    private final SnapshotService snapshotService;
+    private final QueryResponseCache queryResponseCache;
 
     @Operation(
             summary = "Faz upload de arquivo de pedidos",
-            description = "Recebe um arquivo .txt contendo informações de pedidos e retorna os dados processados."
+            description = "Recebe um arquivo .txt contendo informações de pedidos e retorna os dados processados. "
+                    + "O arquivo pode vir compactado com gzip, zstd ou deflate (zlib): o formato é reconhecido pelos "
+                    + "primeiros bytes e o conteúdo é descompactado em streaming durante o parse. "
+                    + "Com streaming=true, o arquivo é persistido em chunks de tamanho limitado e apenas um resumo é retornado. "
+                    + "Com async=true, o arquivo é enfileirado e a resposta 202 traz o id do job para acompanhamento. "
+                    + "No modo tolerante (app.ingestion.lenient) as linhas inválidas são descartadas. Com streaming=true "
+                    + "ou async=true, o resumo e o status do job trazem o relatório rejected_lines (linha, campo, posição e "
+                    + "motivo de cada rejeição). Sem esses parâmetros o corpo continua sendo a lista de usuários e só a "
+                    + "quantidade de linhas descartadas é informada, no header X-Rejected-Lines; para saber quais foram, "
+                    + "use streaming=true ou async=true."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Arquivo processado com sucesso"),
-            @ApiResponse(responseCode = "400", description = "Arquivo inválido ou formato incorreto"),
+            @ApiResponse(responseCode = "202", description = "Arquivo enfileirado para processamento assíncrono"),
+            @ApiResponse(responseCode = "400", description = "Arquivo inválido, formato incorreto ou compactação corrompida"),
+            @ApiResponse(responseCode = "409", description = "Tempo esgotado aguardando outro upload que grava os mesmos registros"),
+            @ApiResponse(responseCode = "429", description = "Fila de processamento assíncrono cheia"),
             @ApiResponse(responseCode = "500", description = "Erro interno ao processar o arquivo")
     })
     @PostMapping(
@@ -42,34 +84,99 @@ public class OrderController {
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<List<UserResponseDto>> uploadFile(
-            @Parameter(description = "Arquivo .txt a ser enviado", required = true)
-            @RequestParam("file") MultipartFile file
+    public ResponseEntity<?> uploadFile(
+            @Parameter(description = "Arquivo .txt a ser enviado, puro ou compactado (.gz, .zst, .zz)", required = true)
+            @RequestParam("file") MultipartFile file,
+
+            @Parameter(description = "Persiste em chunks sem manter o arquivo inteiro em memória")
+            @RequestParam(name = "streaming", defaultValue = "false") boolean streaming,
+
+            @Parameter(description = "Processa em background e retorna 202 com o id do job")
+            @RequestParam(name = "async", defaultValue = "false") boolean async
     ) {
         if (file == null || file.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
 
         try {
-            List<UserResponseDto> result = fileProcessingService.processFile(file);
-            return ResponseEntity.ok(result);
+            if (async) {
+                UploadJobDto job = withLinks(uploadJobService.submit(file));
+                return ResponseEntity.accepted().location(URI.create(job.getStatusUrl())).body(job);
+            }
+            if (streaming) {
+                IngestionSummaryDto summary = fileProcessingService.processFileStreaming(file);
+                return ResponseEntity.ok(summary);
+            }
+            IngestionProgress progress = new IngestionProgress();
+            List<UserResponseDto> result = fileProcessingService.processFile(file, progress);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (progress.getLinesRejected() > 0) {
+                ok.header(REJECTED_LINES_HEADER, String.valueOf(progress.getLinesRejected()));
+            }
+            return ok.body(result);
         } catch (BadFileFormatException e) {
             return ResponseEntity.badRequest().build();
+        } catch (JobQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (IngestionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @Operation(
+            summary = "Consulta o status de um upload assíncrono",
+            description = "Retorna o progresso do job (linhas parseadas, linhas gravadas, throughput e erro, se houver)."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status do job"),
+            @ApiResponse(responseCode = "404", description = "Job inexistente ou já descartado")
+    })
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadJobDto> getJob(@PathVariable("jobId") String jobId) {
+        return uploadJobService.find(jobId)
+                .map(this::withLinks)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Resultado de um upload assíncrono",
+            description = "Retorna o resumo da ingestão quando o job termina com sucesso."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumo da ingestão"),
+            @ApiResponse(responseCode = "404", description = "Job inexistente ou já descartado"),
+            @ApiResponse(responseCode = "409", description = "Job ainda em execução ou finalizado com erro")
+    })
+    @GetMapping(value = "/jobs/{jobId}/result", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getJobResult(@PathVariable("jobId") String jobId) {
+        Optional<UploadJobDto> job = uploadJobService.find(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return uploadJobService.findResult(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body(withLinks(job.get())));
+    }
+
     @Operation(
             summary = "Consulta pedidos",
-            description = "Permite consultar pedidos por ID e/ou intervalo de datas (yyyy-MM-dd)."
+            description = "Permite consultar pedidos por ID e/ou intervalo de datas (yyyy-MM-dd). "
+                    + "Com limit, a resposta é paginada por keyset e traz next_cursor para a próxima página (parâmetro after). "
+                    + "Sem limit, os usuários vêm ordenados por user_id, os pedidos de cada usuário por order_id e os "
+                    + "produtos por product_id, e a resposta traz ETag: com If-None-Match e nenhuma alteração desde então, retorna 304. "
+                    + "Com Accept-Encoding: gzip, respostas acima de 1 KB vêm compactadas."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Consulta realizada com sucesso"),
+            @ApiResponse(responseCode = "304", description = "Resultado igual ao do ETag informado em If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido"),
             @ApiResponse(responseCode = "500", description = "Erro interno no servidor")
     })
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<UserResponseDto>> getOrders(
+    public ResponseEntity<?> getOrders(
             @Parameter(description = "ID do pedido", example = "753")
             @RequestParam(name = "orderId", required = false) Long orderId,
 
@@ -79,17 +186,180 @@ public class OrderController {
 
             @Parameter(description = "Data final (yyyy-MM-dd)", example = "2021-12-31")
             @RequestParam(name = "endDate", required = false)
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "Tamanho da página (1 a 1000); sem ele a consulta não é paginada", example = "100")
+            @RequestParam(name = "limit", required = false) Integer limit,
+
+            @Parameter(description = "Cursor next_cursor devolvido pela página anterior")
+            @RequestParam(name = "after", required = false) String after,
+
+            @Parameter(hidden = true)
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+
+            @Parameter(hidden = true)
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
         try {
             Optional<Long> optOrderId = Optional.ofNullable(orderId);
             Optional<LocalDate> optStart = Optional.ofNullable(startDate);
             Optional<LocalDate> optEnd = Optional.ofNullable(endDate);
 
-            List<UserResponseDto> result = fileProcessingService.query(optOrderId, optStart, optEnd);
-            return ResponseEntity.ok(result);
+            if (limit != null) {
+                OrderPageDto page = fileProcessingService.queryPage(optOrderId, optStart, optEnd, limit, Optional.ofNullable(after));
+                return ResponseEntity.ok(page);
+            }
+
+            QueryResponseCache.Rendered rendered = queryResponseCache.find(optOrderId, optStart, optEnd);
+            boolean gzip = rendered.gzip() != null && acceptsGzip(acceptEncoding);
+            if (rendered.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(rendered.etag(gzip))
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(rendered.etag(gzip))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                ok.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return ok.body(gzip ? rendered.gzip() : rendered.json());
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    @Operation(
+            summary = "Consulta pedidos em streaming",
+            description = "Mesmos filtros da consulta de pedidos, mas o JSON é escrito incrementalmente a partir do banco, "
+                    + "agrupado por usuário (ordenado por user_id/order_id). format=ndjson emite um usuário por linha."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Consulta realizada com sucesso")
+    })
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamOrders(
+            @Parameter(description = "ID do pedido", example = "753")
+            @RequestParam(name = "orderId", required = false) Long orderId,
+
+            @Parameter(description = "Data inicial (yyyy-MM-dd)", example = "2021-01-01")
+            @RequestParam(name = "startDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+
+            @Parameter(description = "Data final (yyyy-MM-dd)", example = "2021-12-31")
+            @RequestParam(name = "endDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "json (array) ou ndjson (um usuário por linha)", example = "json")
+            @RequestParam(name = "format", defaultValue = "json") String format
+    ) {
+        OrderJsonStreamWriter.Format streamFormat = "ndjson".equalsIgnoreCase(format)
+                ? OrderJsonStreamWriter.Format.NDJSON
+                : OrderJsonStreamWriter.Format.JSON;
+        OrderFilter filter = OrderFilter.of(Optional.ofNullable(orderId), Optional.ofNullable(startDate), Optional.ofNullable(endDate));
+
+        StreamingResponseBody body = out -> orderJsonStreamWriter.write(filter, streamFormat, out);
+        return ResponseEntity.ok()
+                .contentType(streamFormat == OrderJsonStreamWriter.Format.NDJSON ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Resumo de pedidos por usuário e/ou dia",
+            description = "Quantidade de pedidos, de itens e receita no intervalo, lidos do resumo materializado mantido "
+                    + "pela ingestão (sem percorrer os itens). Sem startDate/endDate, considera todo o histórico. "
+                    + "group_by=user (padrão), day ou user_day."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumo calculado com sucesso"),
+            @ApiResponse(responseCode = "500", description = "Erro interno no servidor")
+    })
+    @GetMapping(value = "/summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderSummaryDto> getSummary(
+            @Parameter(description = "Data inicial (yyyy-MM-dd)", example = "2021-01-01")
+            @RequestParam(name = "startDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+
+            @Parameter(description = "Data final (yyyy-MM-dd)", example = "2021-12-31")
+            @RequestParam(name = "endDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+
+            @Parameter(description = "user, day ou user_day", example = "user")
+            @RequestParam(name = "group_by", defaultValue = "user") String groupBy
+    ) {
+        try {
+            return ResponseEntity.ok(orderSummaryService.summarize(
+                    Optional.ofNullable(startDate), Optional.ofNullable(endDate), groupBy));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Exporta um snapshot binário da base",
+            description = "Usuários, produtos, pedidos, itens e hashes de pedidos em formato colunar compacto, escrito em "
+                    + "streaming. O arquivo pode ser importado em outra instância por POST /api/v1/orders/snapshot."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot gerado")
+    })
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        StreamingResponseBody body = out -> snapshotService.export(Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.snapshot\"")
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Importa um snapshot binário",
+            description = "Substitui todo o conteúdo da base pelo snapshot enviado no corpo (application/octet-stream), "
+                    + "em uma única transação, e recalcula o resumo diário."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot importado"),
+            @ApiResponse(responseCode = "400", description = "Conteúdo não é um snapshot válido"),
+            @ApiResponse(responseCode = "500", description = "Erro interno ao importar o snapshot")
+    })
+    @PostMapping(value = "/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SnapshotDto> importSnapshot(InputStream body) {
+        try {
+            return ResponseEntity.ok(snapshotService.restore(Channels.newChannel(body)));
+        } catch (InvalidSnapshotException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Aceita gzip salvo quando o cliente o recusa explicitamente ({@code gzip;q=0}).
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].replace(" ", "");
+                if (param.equals("q=0") || param.matches("q=0\\.0*")) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private UploadJobDto withLinks(UploadJobDto job) {
+        job.setStatusUrl(JOBS_PATH + job.getJobId());
+        if (UploadJobService.Status.COMPLETED.name().equals(job.getStatus())) {
+            job.setResultUrl(JOBS_PATH + job.getJobId() + "/result");
+        }
+        return job;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonPropertyOrder({"lines", "chunks", "orders", "skipped_orders", "duplicate", "rejected_lines"})
+public class IngestionSummaryDto {
+
+    private long lines;
+
+    private long chunks;
+
+    private long orders;
+
+    /**
+     * Pedidos cujo conteúdo era idêntico ao último gravado e por isso não foram regravados.
+     */
+    @JsonProperty("skipped_orders")
+    private long skippedOrders;
+
+    /**
+     * O arquivo inteiro já havia sido ingerido; nada foi gravado e os contadores são os da ingestão original.
+     */
+    private boolean duplicate;
+
+    /**
+     * Linhas descartadas no modo tolerante ({@code app.ingestion.lenient}).
+     */
+    @JsonProperty("rejected_lines")
+    private List<RejectedLineDto> rejectedLines = List.of();
+}
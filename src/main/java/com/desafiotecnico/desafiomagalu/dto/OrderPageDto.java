@@ -0,0 +1,19 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonPropertyOrder({"users", "limit", "next_cursor"})
+public class OrderPageDto {
+
+    private List<UserResponseDto> users;
+
+    private int limit;
+
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+}
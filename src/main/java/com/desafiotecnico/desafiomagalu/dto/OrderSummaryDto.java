@@ -0,0 +1,47 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"start_date", "end_date", "group_by", "orders", "items", "revenue", "rows"})
+public class OrderSummaryDto {
+
+    @JsonProperty("start_date")
+    private String startDate;
+
+    @JsonProperty("end_date")
+    private String endDate;
+
+    @JsonProperty("group_by")
+    private String groupBy;
+
+    private long orders;
+
+    private long items;
+
+    private String revenue;
+
+    private List<RowDto> rows;
+
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonPropertyOrder({"user_id", "date", "orders", "items", "revenue"})
+    public static class RowDto {
+        @JsonProperty("user_id")
+        private Long userId;
+
+        private String date;
+
+        private long orders;
+
+        private long items;
+
+        private String revenue;
+    }
+}
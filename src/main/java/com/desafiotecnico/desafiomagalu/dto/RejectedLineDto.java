@@ -0,0 +1,34 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Linha descartada no modo tolerante.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"line_number", "offset", "field", "reason"})
+public class RejectedLineDto {
+
+    /**
+     * Número da linha no arquivo, a partir de 1.
+     */
+    @JsonProperty("line_number")
+    private long lineNumber;
+
+    /**
+     * Posição (0-based) do campo inválido na linha; para linhas curtas, o tamanho da linha.
+     */
+    private Integer offset;
+
+    private String field;
+
+    private String reason;
+}
@@ -0,0 +1,22 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+@Data
+@JsonPropertyOrder({"users", "products", "orders", "items", "bytes"})
+public class SnapshotDto {
+
+    private long users;
+
+    private long products;
+
+    private long orders;
+
+    private long items;
+
+    /**
+     * Tamanho do snapshot lido ou escrito.
+     */
+    private long bytes;
+}
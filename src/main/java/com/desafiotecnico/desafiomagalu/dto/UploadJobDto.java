@@ -0,0 +1,53 @@
+package com.desafiotecnico.desafiomagalu.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"job_id", "status", "lines_parsed", "rows_persisted", "lines_per_second", "rejected_lines", "error",
+        "created_at", "started_at", "finished_at", "status_url", "result_url"})
+public class UploadJobDto {
+
+    @JsonProperty("job_id")
+    private String jobId;
+
+    private String status;
+
+    @JsonProperty("lines_parsed")
+    private long linesParsed;
+
+    @JsonProperty("rows_persisted")
+    private long rowsPersisted;
+
+    @JsonProperty("lines_per_second")
+    private long linesPerSecond;
+
+    /**
+     * Linhas descartadas até agora no modo tolerante.
+     */
+    @JsonProperty("rejected_lines")
+    private List<RejectedLineDto> rejectedLines;
+
+    private String error;
+
+    @JsonProperty("created_at")
+    private Instant createdAt;
+
+    @JsonProperty("started_at")
+    private Instant startedAt;
+
+    @JsonProperty("finished_at")
+    private Instant finishedAt;
+
+    @JsonProperty("status_url")
+    private String statusUrl;
+
+    @JsonProperty("result_url")
+    private String resultUrl;
+}
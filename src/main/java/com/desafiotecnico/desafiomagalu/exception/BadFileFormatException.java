@@ -1,16 +1,36 @@
 package com.desafiotecnico.desafiomagalu.exception;
 
+import lombok.Getter;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
+@Getter
 public class BadFileFormatException extends RuntimeException {
 
+    /**
+     * Campo da linha que causou o erro ({@code userId}, {@code date}, ...), ou {@code null} se não se aplica.
+     */
+    private final String field;
+
+    /**
+     * Posição (0-based) do campo na linha, ou {@code -1} se não se aplica.
+     */
+    private final int offset;
+
     public BadFileFormatException(String message) {
-        super(message);
+        this(message, null, -1);
     }
 
     public BadFileFormatException(String message, Throwable cause) {
         super(message, cause);
+        this.field = null;
+        this.offset = -1;
+    }
+
+    public BadFileFormatException(String message, String field, int offset) {
+        super(message);
+        this.field = field;
+        this.offset = offset;
     }
 }
@@ -0,0 +1,12 @@
+package com.desafiotecnico.desafiomagalu.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IngestionConflictException extends RuntimeException {
+
+    public IngestionConflictException(String message) {
+        super(message);
+    }
+}
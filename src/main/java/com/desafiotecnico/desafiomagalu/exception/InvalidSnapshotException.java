@@ -0,0 +1,12 @@
+package com.desafiotecnico.desafiomagalu.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSnapshotException extends RuntimeException {
+
+    public InvalidSnapshotException(String message) {
+        super(message);
+    }
+}
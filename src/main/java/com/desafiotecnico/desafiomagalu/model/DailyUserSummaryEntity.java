@@ -0,0 +1,34 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumo materializado por usuário e dia (pedidos, itens e receita em centavos), mantido de forma incremental
+ * pela ingestão. A chave começa pela data para que intervalos sejam lidos por range scan.
+ */
+@Entity
+@Table(name = "daily_user_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyUserSummaryEntity {
+    @EmbeddedId
+    private DailyUserSummaryId id;
+
+    @Column(name = "orders", nullable = false)
+    private long orders;
+
+    @Column(name = "items", nullable = false)
+    private long items;
+
+    @Column(name = "revenue_cents", nullable = false)
+    private long revenueCents;
+}
@@ -0,0 +1,22 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyUserSummaryId implements Serializable {
+    @Column(name = "date")
+    private LocalDate date;
+
+    @Column(name = "user_id")
+    private Long userId;
+}
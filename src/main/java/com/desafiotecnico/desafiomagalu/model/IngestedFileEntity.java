@@ -0,0 +1,39 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Registro do ledger de ingestão: um arquivo já processado, identificado pelo SHA-256 do conteúdo.
+ */
+@Entity
+@Table(name = "ingested_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestedFileEntity {
+    @Id
+    @Column(name = "file_hash", length = 64)
+    private String fileHash;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "lines", nullable = false)
+    private long lines;
+
+    @Column(name = "orders", nullable = false)
+    private long orders;
+
+    @Column(name = "ingested_at", nullable = false)
+    private Instant ingestedAt;
+}
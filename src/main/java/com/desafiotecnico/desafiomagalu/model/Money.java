@@ -0,0 +1,127 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em ponto fixo: um {@code long} com a quantidade de centavos. Parsing, agregação e
+ * formatação da resposta trabalham só com o {@code long}; {@link BigDecimal} aparece apenas na fronteira com o
+ * banco ({@code OrderEntity.total}, {@code OrderItemEntity.value} e os binds JDBC).
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Lê {@code [+-]inteiro[.fração]}, ignorando espaços nas pontas; casas além da segunda são arredondadas
+     * com HALF_UP. Vazio vale zero.
+     *
+     * @throws NumberFormatException se houver caractere fora do formato
+     * @throws ArithmeticException   se o valor não couber em um {@code long} de centavos
+     */
+    public static long parse(CharSequence s) {
+        return parse(s::charAt, 0, s.length());
+    }
+
+    /**
+     * Como {@link #parse(CharSequence)}, direto sobre os bytes {@code [from, to)} de uma linha (um byte por
+     * caractere), sem criar {@code String}. É o que o parser de bytes usa, para que os dois parsers do layout
+     * legado aceitem exatamente o mesmo formato.
+     */
+    public static long parse(byte[] b, int from, int to) {
+        return parse(i -> (char) (b[i] & 0xFF), from, to);
+    }
+
+    private static long parse(Source s, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        if (start == end) return 0;
+
+        boolean negative = false;
+        if (s.charAt(start) == '-' || s.charAt(start) == '+') {
+            negative = s.charAt(start) == '-';
+            start++;
+        }
+
+        long units = 0;
+        long fraction = 0;
+        int fractionDigits = -1;
+        boolean roundUp = false;
+        boolean anyDigit = false;
+
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (fractionDigits >= 0) throw invalid(s, from, to);
+                fractionDigits = 0;
+                continue;
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9) throw invalid(s, from, to);
+            anyDigit = true;
+
+            if (fractionDigits < 0) {
+                units = Math.addExact(Math.multiplyExact(units, 10), d);
+            } else {
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + d;
+                } else if (fractionDigits == 2) {
+                    roundUp = d >= 5;
+                }
+                fractionDigits++;
+            }
+        }
+        if (!anyDigit) throw invalid(s, from, to);
+        if (fractionDigits == 1) fraction *= 10;
+
+        long cents = Math.addExact(Math.multiplyExact(units, 100), fraction + (roundUp ? 1 : 0));
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Formata com duas casas e ponto decimal, como {@code setScale(2, HALF_UP).toPlainString()}.
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long units = abs / 100;
+        int fraction = (int) (abs % 100);
+
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) sb.append('-');
+        return sb.append(units)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10))
+                .toString();
+    }
+
+    /**
+     * Formata um valor vindo do JPA; {@code null} vira {@code "0.00"}.
+     */
+    public static String format(BigDecimal value) {
+        return value == null ? "0.00" : format(fromBigDecimal(value));
+    }
+
+    public static long fromBigDecimal(BigDecimal value) {
+        if (value == null) return 0;
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static NumberFormatException invalid(Source s, int from, int to) {
+        StringBuilder raw = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) raw.append(s.charAt(i));
+        return new NumberFormatException("Valor monetário inválido: '" + raw + "'");
+    }
+
+    @FunctionalInterface
+    private interface Source {
+        char charAt(int index);
+    }
+}
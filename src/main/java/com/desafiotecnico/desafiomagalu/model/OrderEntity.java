@@ -9,7 +9,10 @@ import java.util.List;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_date", columnList = "date, order_id"),
+        @Index(name = "idx_orders_user", columnList = "user_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
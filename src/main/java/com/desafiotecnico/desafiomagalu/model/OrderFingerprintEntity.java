@@ -0,0 +1,29 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro do ledger de ingestão: hash do último conteúdo gravado de um pedido (usuário, data e itens, na ordem
+ * do arquivo).
+ */
+@Entity
+@Table(name = "order_fingerprints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderFingerprintEntity {
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "content_hash", nullable = false)
+    private long contentHash;
+}
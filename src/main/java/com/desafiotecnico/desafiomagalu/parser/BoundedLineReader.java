@@ -0,0 +1,74 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@code BufferedReader.readLine()} com teto de tamanho: as linhas terminam em {@code '\n'}, {@code '\r'} ou
+ * {@code "\r\n"}, e uma linha maior que {@link LegacyRecordReader#MAX_LINE_LENGTH} caracteres aborta a leitura
+ * em vez de acumular o arquivo inteiro em memória.
+ */
+public final class BoundedLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder(128);
+    private int pos;
+    private int limit;
+    private boolean skipLf;
+    private long lines;
+
+    public BoundedLineReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return a próxima linha sem o terminador, ou {@code null} no fim do arquivo
+     * @throws com.desafiotecnico.desafiomagalu.exception.BadFileFormatException se a linha passar do limite
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        boolean any = false;
+        while (true) {
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (!any) return null;
+                    lines++;
+                    return line.toString();
+                }
+            }
+            if (skipLf) {
+                skipLf = false;
+                if (buf[pos] == '\n') {
+                    pos++;
+                    continue;
+                }
+            }
+            any = true;
+
+            int start = pos;
+            while (pos < limit && !LegacyLayout.isLineBreak(buf[pos])) pos++;
+            if (line.length() + pos - start > LegacyRecordReader.MAX_LINE_LENGTH) {
+                throw LegacyRecordReader.lineTooLong(lines + 1);
+            }
+            line.append(buf, start, pos - start);
+            if (pos < limit) {
+                skipLf = buf[pos] == '\r';
+                pos++;
+                lines++;
+                return line.toString();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
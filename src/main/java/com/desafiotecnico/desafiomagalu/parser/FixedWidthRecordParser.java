@@ -0,0 +1,180 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.model.Money;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser do layout legado que trabalha direto sobre bytes, sem criar substrings, regex ou exceções no
+ * caminho feliz. Equivalente ao {@link LegacyLineParser}, mas assume um encoding de um byte por caractere
+ * (as posições dos campos são offsets em bytes); o charset só é usado para decodificar o nome.
+ */
+public final class FixedWidthRecordParser {
+
+    public static final int RECORD_LENGTH = LegacyLayout.RECORD_LENGTH;
+
+    private static final int DAYS_0000_TO_1970 = 719_528;
+
+    private final Charset nameCharset;
+
+    public FixedWidthRecordParser() {
+        this(StandardCharsets.ISO_8859_1);
+    }
+
+    public FixedWidthRecordParser(Charset nameCharset) {
+        this.nameCharset = nameCharset;
+    }
+
+    public Charset getNameCharset() {
+        return nameCharset;
+    }
+
+    /**
+     * Copia os bytes da linha para o buffer interno do registro antes de parsear, o que permite ler de
+     * buffers diretos ou mapeados sem expor o {@code ByteBuffer} ao registro.
+     */
+    public LegacyRecord parse(ByteBuffer buffer, int offset, int length, LegacyRecord target) {
+        checkLength(length);
+        buffer.get(offset, target.scratch, 0, RECORD_LENGTH);
+        return parse(target.scratch, 0, RECORD_LENGTH, target);
+    }
+
+    public LegacyRecord parse(byte[] line, int offset, int length, LegacyRecord target) {
+        checkLength(length);
+
+        target.userId = parseId(line,
+                offset + LegacyLayout.USER_ID_START, offset + LegacyLayout.NAME_START, "userId");
+        target.orderId = parseId(line,
+                offset + LegacyLayout.ORDER_ID_START, offset + LegacyLayout.PRODUCT_ID_START, "orderId");
+        target.productId = parseId(line,
+                offset + LegacyLayout.PRODUCT_ID_START, offset + LegacyLayout.VALUE_START, "productId");
+        target.valueCents = parseCents(line,
+                offset + LegacyLayout.VALUE_START, offset + LegacyLayout.DATE_START, "value");
+        target.epochDay = parseEpochDay(line,
+                offset + LegacyLayout.DATE_START, offset + RECORD_LENGTH, "date");
+
+        int nameStart = offset + LegacyLayout.NAME_START;
+        int nameEnd = offset + LegacyLayout.ORDER_ID_START;
+        while (nameStart < nameEnd && isWhitespace(line[nameStart])) nameStart++;
+        while (nameEnd > nameStart && isWhitespace(line[nameEnd - 1])) nameEnd--;
+        target.nameSource = line;
+        target.nameStart = nameStart;
+        target.nameEnd = nameEnd;
+        target.nameCharset = nameCharset;
+        target.userName = null;
+
+        return target;
+    }
+
+    public static boolean isBlank(byte[] line, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!isWhitespace(line[i])) return false;
+        }
+        return true;
+    }
+
+    // ---------------- helpers ----------------
+
+    private static void checkLength(int length) {
+        if (length < RECORD_LENGTH) throw LegacyLayout.truncated(length);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    private static long parseId(byte[] b, int from, int to, String fieldName) {
+        int start = from;
+        int end = to;
+        while (start < end && isWhitespace(b[start])) start++;
+        while (end > start && isWhitespace(b[end - 1])) end--;
+
+        long v = 0;
+        for (int i = start; i < end; i++) {
+            if (!LegacyLayout.isIdDigit(b[i])) throw invalidField(fieldName, b, from, to);
+            v = v * 10 + (b[i] - '0');
+        }
+        return v;
+    }
+
+    /**
+     * Formato de {@link Money#parse(byte[], int, int)}, o mesmo do {@link LegacyLineParser}.
+     */
+    private static long parseCents(byte[] b, int from, int to, String fieldName) {
+        try {
+            return Money.parse(b, from, to);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw invalidField(fieldName, b, from, to);
+        }
+    }
+
+    /**
+     * Converte {@code yyyyMMdd} para epoch-day aritmeticamente. Segue o {@code ResolverStyle.SMART} do
+     * {@code DateTimeFormatter} usado pelo {@link LegacyLineParser}: dia 29-31 inexistente no mês é
+     * ajustado para o último dia do mês.
+     */
+    private static int parseEpochDay(byte[] b, int from, int to, String fieldName) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) throw invalidDate(fieldName, b, from, to);
+            v = v * 10 + d;
+        }
+        int year = v / 10_000;
+        int month = (v / 100) % 100;
+        int day = v % 100;
+
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            throw invalidDate(fieldName, b, from, to);
+        }
+        day = Math.min(day, lengthOfMonth(year, month));
+
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) total--;
+        }
+        return (int) (total - DAYS_0000_TO_1970);
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static BadFileFormatException invalidField(String fieldName, byte[] b, int from, int to) {
+        return new BadFileFormatException("Campo inválido para " + fieldName + ": '" + raw(b, from, to) + "'",
+                fieldName, fieldOffset(fieldName));
+    }
+
+    private static BadFileFormatException invalidDate(String fieldName, byte[] b, int from, int to) {
+        return new BadFileFormatException("Data inválida no campo " + fieldName + ": '" + raw(b, from, to) + "'",
+                fieldName, LegacyLayout.DATE_START);
+    }
+
+    private static int fieldOffset(String fieldName) {
+        return switch (fieldName) {
+            case "userId" -> LegacyLayout.USER_ID_START;
+            case "orderId" -> LegacyLayout.ORDER_ID_START;
+            case "productId" -> LegacyLayout.PRODUCT_ID_START;
+            case "value" -> LegacyLayout.VALUE_START;
+            default -> LegacyLayout.DATE_START;
+        };
+    }
+
+    private static String raw(byte[] b, int from, int to) {
+        return new String(b, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+
+/**
+ * Posições dos campos do layout legado e as regras que o {@link LegacyLineParser} (texto) e o
+ * {@link FixedWidthRecordParser} (bytes) precisam aplicar igualmente, para que uma linha seja aceita ou
+ * rejeitada, com o mesmo campo e posição, qualquer que seja o caminho de leitura.
+ */
+final class LegacyLayout {
+
+    static final int RECORD_LENGTH = 95;
+
+    static final int USER_ID_START = 0;
+    static final int NAME_START = 10;
+    static final int ORDER_ID_START = 55;
+    static final int PRODUCT_ID_START = 65;
+    static final int VALUE_START = 75;
+    static final int DATE_START = 87;
+
+    private LegacyLayout() {
+    }
+
+    /**
+     * Erro de uma linha com {@code length} caracteres, menor que o registro: aponta o primeiro campo que a linha
+     * não chega a conter por inteiro, com a posição em que esse campo deveria começar.
+     */
+    static BadFileFormatException truncated(int length) {
+        String field;
+        int offset;
+        if (length < NAME_START) {
+            field = "userId";
+            offset = USER_ID_START;
+        } else if (length < ORDER_ID_START) {
+            field = "name";
+            offset = NAME_START;
+        } else if (length < PRODUCT_ID_START) {
+            field = "orderId";
+            offset = ORDER_ID_START;
+        } else if (length < VALUE_START) {
+            field = "productId";
+            offset = PRODUCT_ID_START;
+        } else if (length < DATE_START) {
+            field = "value";
+            offset = VALUE_START;
+        } else {
+            field = "date";
+            offset = DATE_START;
+        }
+        return new BadFileFormatException("Linha inválida (esperado pelo menos " + RECORD_LENGTH + " caracteres, "
+                + "recebidos " + length + "): campo " + field + " incompleto", field, offset);
+    }
+
+    /**
+     * Ids são só dígitos (zeros à esquerda e espaços nas pontas são aceitos); sinal não faz parte do layout.
+     */
+    static boolean isIdDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Quebras de linha dos dois leitores: {@code '\n'}, {@code '\r'} sozinho ou {@code "\r\n"}, como o
+     * {@code BufferedReader.readLine()} usado originalmente.
+     */
+    static boolean isLineBreak(int c) {
+        return c == '\n' || c == '\r';
+    }
+}
@@ -1,6 +1,7 @@
 package com.desafiotecnico.desafiomagalu.parser;
 
 import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.model.Money;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -14,7 +15,6 @@ import java.time.format.DateTimeParseException;
 @Slf4j
 public class LegacyLineParser {
 
-    private static final int MIN_LINE_LENGTH = 95;
     private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("yyyyMMdd");
 
     public ParsedLine parse(String line) {
@@ -22,26 +22,26 @@ public class LegacyLineParser {
             throw new BadFileFormatException("Linha nula recebida");
         }
 
-        if (line.length() < MIN_LINE_LENGTH) {
-            throw new BadFileFormatException("Linha inválida (esperado pelo menos " + MIN_LINE_LENGTH + " caracteres)");
+        if (line.length() < LegacyLayout.RECORD_LENGTH) {
+            throw LegacyLayout.truncated(line.length());
         }
 
         try {
-            String userIdRaw   = substringSafe(line, 0, 10);
-            String userNameRaw = substringSafe(line, 10, 55);
-            String orderIdRaw  = substringSafe(line, 55, 65);
-            String prodIdRaw   = substringSafe(line, 65, 75);
-            String valueRaw    = substringSafe(line, 75, 87);
-            String dateRaw     = substringSafe(line, 87, 95);
-
-            Long userId    = parseLongAllowLeadingZeros(userIdRaw, "userId");
+            String userIdRaw   = substringSafe(line, LegacyLayout.USER_ID_START, LegacyLayout.NAME_START);
+            String userNameRaw = substringSafe(line, LegacyLayout.NAME_START, LegacyLayout.ORDER_ID_START);
+            String orderIdRaw  = substringSafe(line, LegacyLayout.ORDER_ID_START, LegacyLayout.PRODUCT_ID_START);
+            String prodIdRaw   = substringSafe(line, LegacyLayout.PRODUCT_ID_START, LegacyLayout.VALUE_START);
+            String valueRaw    = substringSafe(line, LegacyLayout.VALUE_START, LegacyLayout.DATE_START);
+            String dateRaw     = substringSafe(line, LegacyLayout.DATE_START, LegacyLayout.RECORD_LENGTH);
+
+            Long userId    = parseLongAllowLeadingZeros(userIdRaw, "userId", LegacyLayout.USER_ID_START);
             String userName = userNameRaw.trim();
-            Long orderId   = parseLongAllowLeadingZeros(orderIdRaw, "orderId");
-            Long productId = parseLongAllowLeadingZeros(prodIdRaw, "productId");
-            BigDecimal value = parseMonetaryValue(valueRaw, "value");
-            LocalDate date = parseDate(dateRaw, "date");
+            Long orderId   = parseLongAllowLeadingZeros(orderIdRaw, "orderId", LegacyLayout.ORDER_ID_START);
+            Long productId = parseLongAllowLeadingZeros(prodIdRaw, "productId", LegacyLayout.PRODUCT_ID_START);
+            long valueCents = parseMonetaryValue(valueRaw, "value", LegacyLayout.VALUE_START);
+            LocalDate date = parseDate(dateRaw, "date", LegacyLayout.DATE_START);
 
-            return new ParsedLine(userId, userName, orderId, productId, value, date);
+            return new ParsedLine(userId, userName, orderId, productId, valueCents, date);
         } catch (BadFileFormatException e) {
             throw e;
         } catch (Exception e) {
@@ -57,45 +57,36 @@ public class LegacyLineParser {
         return s.substring(start, e);
     }
 
-    private static Long parseLongAllowLeadingZeros(String raw, String fieldName) {
+    private static Long parseLongAllowLeadingZeros(String raw, String fieldName, int offset) {
         if (raw == null) return 0L;
         String cleaned = raw.trim().replaceFirst("^0+", "");
         if (cleaned.isEmpty()) return 0L;
-        try {
-            return Long.parseLong(cleaned);
-        } catch (NumberFormatException ex) {
-            throw new BadFileFormatException("Campo inválido para " + fieldName + ": '" + raw + "'");
+        if (!cleaned.chars().allMatch(LegacyLayout::isIdDigit)) {
+            throw new BadFileFormatException("Campo inválido para " + fieldName + ": '" + raw + "'", fieldName, offset);
         }
+        return Long.parseLong(cleaned);
     }
 
-    private static BigDecimal parseMonetaryValue(String raw, String fieldName) {
-        if (raw == null) return BigDecimal.ZERO;
-        String t = raw.trim();
-        if (t.isEmpty()) return BigDecimal.ZERO;
-
+    /**
+     * Valor em centavos; sem ponto decimal o campo é lido como unidades inteiras.
+     */
+    private static long parseMonetaryValue(String raw, String fieldName, int offset) {
+        if (raw == null) return 0;
         try {
-            return new BigDecimal(t);
-        } catch (NumberFormatException ignored) { }
-
-        String cleaned = t.replaceFirst("^0+", "");
-        if (cleaned.isEmpty()) return BigDecimal.ZERO;
-
-        try {
-            long cents = Long.parseLong(cleaned);
-            return BigDecimal.valueOf(cents).movePointLeft(2);
-        } catch (NumberFormatException ex) {
-            throw new BadFileFormatException("Campo inválido para " + fieldName + ": '" + raw + "'");
+            return Money.parse(raw);
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new BadFileFormatException("Campo inválido para " + fieldName + ": '" + raw + "'", fieldName, offset);
         }
     }
 
-    private static LocalDate parseDate(String raw, String fieldName) {
-        if (raw == null) throw new BadFileFormatException("Campo de data ausente: " + fieldName);
+    private static LocalDate parseDate(String raw, String fieldName, int offset) {
+        if (raw == null) throw new BadFileFormatException("Campo de data ausente: " + fieldName, fieldName, offset);
         String t = raw.trim();
-        if (t.isEmpty()) throw new BadFileFormatException("Campo de data vazio: " + fieldName);
+        if (t.isEmpty()) throw new BadFileFormatException("Campo de data vazio: " + fieldName, fieldName, offset);
         try {
             return LocalDate.parse(t, DF);
         } catch (DateTimeParseException ex) {
-            throw new BadFileFormatException("Data inválida no campo " + fieldName + ": '" + raw + "'");
+            throw new BadFileFormatException("Data inválida no campo " + fieldName + ": '" + raw + "'", fieldName, offset);
         }
     }
 
@@ -105,7 +96,11 @@ public class LegacyLineParser {
         String userName;
         Long orderId;
         Long productId;
-        BigDecimal value;
+        long valueCents;
         LocalDate date;
+
+        public BigDecimal getValue() {
+            return Money.toBigDecimal(valueCents);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+
+/**
+ * Registro mutável e reutilizável preenchido pelo {@link FixedWidthRecordParser}. Os campos numéricos ficam
+ * em primitivos (valor em centavos, data em epoch-day) e o nome do usuário só é decodificado quando
+ * {@link #getUserName()} é chamado. O conteúdo é sobrescrito no próximo {@code parse}.
+ */
+public final class LegacyRecord {
+
+    @Getter long userId;
+    @Getter long orderId;
+    @Getter long productId;
+    @Getter long valueCents;
+    @Getter int epochDay;
+
+    final byte[] scratch = new byte[FixedWidthRecordParser.RECORD_LENGTH];
+    byte[] nameSource;
+    int nameStart;
+    int nameEnd;
+    Charset nameCharset;
+    String userName;
+
+    public String getUserName() {
+        if (userName == null) {
+            userName = new String(nameSource, nameStart, nameEnd - nameStart, nameCharset);
+        }
+        return userName;
+    }
+
+    public BigDecimal getValue() {
+        return BigDecimal.valueOf(valueCents, 2);
+    }
+
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public ParsedLine toParsedLine() {
+        return new ParsedLine(userId, getUserName(), orderId, productId, valueCents, getDate());
+    }
+}
@@ -0,0 +1,180 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Lê um arquivo legado como bytes, separando as linhas por {@code '\n'}, {@code '\r'} ou {@code "\r\n"} (as
+ * mesmas quebras do {@link BoundedLineReader}, então a numeração das linhas não depende do caminho) e
+ * entregando cada uma ao {@link FixedWidthRecordParser} sem decodificar para {@code String}. O mesmo
+ * {@link LegacyRecord} é reutilizado para todas as linhas. Linhas inválidas vão para o
+ * {@link RejectedLineHandler}; o padrão ({@link RejectedLineHandler#STRICT}) interrompe a leitura.
+ */
+public final class LegacyRecordReader {
+
+    /**
+     * Maior linha aceita, em bytes. Um registro válido tem {@value FixedWidthRecordParser#RECORD_LENGTH} bytes;
+     * o limite só existe para que um upload sem quebras de linha falhe em vez de crescer o buffer até estourar
+     * o heap.
+     */
+    public static final int MAX_LINE_LENGTH = 4 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FixedWidthRecordParser parser;
+    private final RejectedLineHandler rejectedLines;
+    private long lines;
+
+    public LegacyRecordReader(FixedWidthRecordParser parser) {
+        this(parser, RejectedLineHandler.STRICT);
+    }
+
+    public LegacyRecordReader(FixedWidthRecordParser parser, RejectedLineHandler rejectedLines) {
+        this.parser = parser;
+        this.rejectedLines = rejectedLines;
+    }
+
+    /**
+     * Linhas lidas até agora por este leitor, incluindo as em branco e as rejeitadas; leituras sucessivas
+     * (ex.: janelas de um arquivo mapeado) continuam a numeração.
+     */
+    public long linesRead() {
+        return lines;
+    }
+
+    /**
+     * @return quantidade de registros entregues ao {@code sink} (linhas em branco são ignoradas)
+     */
+    public long read(InputStream in, Consumer<LegacyRecord> sink) throws IOException {
+        LegacyRecord record = new LegacyRecord();
+        byte[] buf = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        int scan = 0;
+        long records = 0;
+
+        while (true) {
+            while (scan < end) {
+                byte b = buf[scan];
+                if (!LegacyLayout.isLineBreak(b)) {
+                    scan++;
+                    continue;
+                }
+                // '\r' no fim do buffer: só a próxima leitura diz se vem um '\n' junto
+                if (b == '\r' && scan + 1 == end) break;
+                records += emit(buf, start, scan, record, sink);
+                scan += b == '\r' && buf[scan + 1] == '\n' ? 2 : 1;
+                start = scan;
+            }
+
+            if (end - start > MAX_LINE_LENGTH) {
+                throw lineTooLong(lines + 1);
+            }
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                end -= start;
+                scan -= start;
+                start = 0;
+            }
+
+            int n = in.read(buf, end, buf.length - end);
+            if (n < 0) break;
+            end += n;
+        }
+
+        if (end > start) {
+            records += emit(buf, start, buf[end - 1] == '\r' ? end - 1 : end, record, sink);
+        }
+        return records;
+    }
+
+    /**
+     * Linha sem quebra depois de {@link #MAX_LINE_LENGTH} bytes: o arquivo não está no layout legado (ou
+     * é binário). Aborta o upload mesmo no modo tolerante, já que não há como saber onde a próxima linha começa.
+     */
+    public static BadFileFormatException lineTooLong(long lineNumber) {
+        return new BadFileFormatException("Linha " + lineNumber + " excede " + MAX_LINE_LENGTH
+                + " bytes sem quebra de linha", "line", MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Lê os registros do intervalo {@code [from, to)} de um buffer (heap, direto ou mapeado). O intervalo deve
+     * começar no início de uma linha e não terminar entre o {@code '\r'} e o {@code '\n'} de um {@code "\r\n"};
+     * a última linha pode terminar sem quebra.
+     */
+    public long read(ByteBuffer buffer, int from, int to, Consumer<LegacyRecord> sink) {
+        LegacyRecord record = new LegacyRecord();
+        long records = 0;
+        int start = from;
+
+        int i = from;
+        while (i < to) {
+            byte b = buffer.get(i);
+            if (!LegacyLayout.isLineBreak(b)) {
+                i++;
+                continue;
+            }
+            records += emit(buffer, start, i, record, sink);
+            i += b == '\r' && i + 1 < to && buffer.get(i + 1) == '\n' ? 2 : 1;
+            start = i;
+        }
+        if (to > start) {
+            records += emit(buffer, start, to, record, sink);
+        }
+        return records;
+    }
+
+    /**
+     * Posição do primeiro byte da linha seguinte a {@code position} (ou {@code limit}, se não houver).
+     */
+    public static int nextLineStart(ByteBuffer buffer, int position, int limit) {
+        for (int i = position; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (LegacyLayout.isLineBreak(b)) {
+                return b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private int emit(ByteBuffer buffer, int from, int to, LegacyRecord record, Consumer<LegacyRecord> sink) {
+        lines++;
+        int length = to - from;
+        if (length == 0) return 0;
+        if ((buffer.get(from) & 0xFF) <= ' ') {
+            boolean blank = true;
+            for (int i = from; i < to && blank; i++) {
+                blank = (buffer.get(i) & 0xFF) <= ' ';
+            }
+            if (blank) return 0;
+        }
+
+        try {
+            parser.parse(buffer, from, length, record);
+        } catch (BadFileFormatException e) {
+            rejectedLines.reject(lines, e);
+            return 0;
+        }
+        sink.accept(record);
+        return 1;
+    }
+
+    private int emit(byte[] buf, int from, int to, LegacyRecord record, Consumer<LegacyRecord> sink) {
+        lines++;
+        int length = to - from;
+        if (FixedWidthRecordParser.isBlank(buf, from, length)) return 0;
+
+        try {
+            parser.parse(buf, from, length, record);
+        } catch (BadFileFormatException e) {
+            rejectedLines.reject(lines, e);
+            return 0;
+        }
+        sink.accept(record);
+        return 1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Expõe um arquivo em disco como uma sequência de janelas mapeadas em memória ({@link FileChannel#map}).
+ * Cada janela termina em fim de linha, então pode ser entregue inteira ao {@link LegacyRecordReader} ou ao
+ * parse paralelo; arquivos maiores que 2 GB são percorridos em várias janelas.
+ */
+public final class MappedFileReader implements AutoCloseable {
+
+    static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long windowSize;
+
+    MappedFileReader(FileChannel channel, long windowSize) {
+        this.channel = channel;
+        this.windowSize = windowSize;
+    }
+
+    public static MappedFileReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    static MappedFileReader open(Path path, long windowSize) throws IOException {
+        return new MappedFileReader(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+    }
+
+    public void forEachWindow(WindowConsumer consumer) throws IOException {
+        long size = channel.size();
+        long position = 0;
+
+        while (position < size) {
+            long length = Math.min(windowSize, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int limit = (int) length;
+            if (position + length < size) {
+                limit = lastLineEnd(window, limit);
+                if (limit == 0) {
+                    throw new IOException("Linha maior que a janela de mapeamento (" + windowSize + " bytes)");
+                }
+            }
+
+            consumer.accept(window, limit);
+            position += limit;
+        }
+    }
+
+    /**
+     * Um {@code '\r'} no último byte da janela não encerra a janela: o {@code '\n'} do par pode estar na
+     * próxima.
+     */
+    private static int lastLineEnd(ByteBuffer window, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            byte b = window.get(i);
+            if (b == '\n' || (b == '\r' && i + 1 < limit)) return i + 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface WindowConsumer {
+        /**
+         * @param window janela mapeada, começando no início de uma linha
+         * @param limit  quantidade de bytes válidos (sempre em fim de linha, exceto no fim do arquivo)
+         */
+        void accept(ByteBuffer window, int limit) throws IOException;
+    }
+}
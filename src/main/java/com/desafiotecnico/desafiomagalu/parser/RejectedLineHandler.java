@@ -0,0 +1,20 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+
+/**
+ * Destino das linhas que não puderam ser parseadas. Relançar o erro interrompe a leitura (modo estrito); não
+ * relançar descarta a linha e segue para a próxima.
+ */
+@FunctionalInterface
+public interface RejectedLineHandler {
+
+    RejectedLineHandler STRICT = (lineNumber, error) -> {
+        throw error;
+    };
+
+    /**
+     * @param lineNumber número da linha no arquivo, a partir de 1 (linhas em branco também contam)
+     */
+    void reject(long lineNumber, BadFileFormatException error);
+}
@@ -0,0 +1,65 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Ledger da ingestão ({@code ingested_files} e {@code order_fingerprints}): arquivos já processados e o hash do
+ * último conteúdo gravado de cada pedido, usados para pular reenvios sem alteração.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngestionLedgerRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public Optional<IngestedFile> findFile(String fileHash) {
+        return jdbc.query("SELECT file_hash, size_bytes, lines, orders FROM ingested_files WHERE file_hash = :hash",
+                Map.of("hash", fileHash),
+                (rs, n) -> new IngestedFile(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)))
+                .stream().findFirst();
+    }
+
+    public void recordFile(IngestedFile file) {
+        jdbc.update("MERGE INTO ingested_files (file_hash, size_bytes, lines, orders, ingested_at) KEY (file_hash) "
+                        + "VALUES (:hash, :size, :lines, :orders, :at)",
+                new MapSqlParameterSource()
+                        .addValue("hash", file.fileHash())
+                        .addValue("size", file.sizeBytes())
+                        .addValue("lines", file.lines())
+                        .addValue("orders", file.orders())
+                        .addValue("at", Timestamp.from(Instant.now())));
+    }
+
+    public Map<Long, Long> findOrderFingerprints(Collection<Long> orderIds) {
+        Map<Long, Long> fingerprints = new HashMap<>();
+        for (List<Long> slice : OrderBulkRepository.slices(orderIds)) {
+            jdbc.query("SELECT order_id, content_hash FROM order_fingerprints WHERE order_id IN (:ids)",
+                    Map.of("ids", slice),
+                    rs -> {
+                        fingerprints.put(rs.getLong(1), rs.getLong(2));
+                    });
+        }
+        return fingerprints;
+    }
+
+    public void saveOrderFingerprints(Map<Long, Long> fingerprints) {
+        if (fingerprints.isEmpty()) return;
+        SqlParameterSource[] batch = fingerprints.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("orderId", e.getKey())
+                        .addValue("hash", e.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("MERGE INTO order_fingerprints (order_id, content_hash) KEY (order_id) VALUES (:orderId, :hash)",
+                batch);
+    }
+
+    public record IngestedFile(String fileHash, long sizeBytes, long lines, long orders) {}
+}
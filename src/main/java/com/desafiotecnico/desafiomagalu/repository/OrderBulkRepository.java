@@ -0,0 +1,172 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.model.OrderItemId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Acesso set-based às tabelas de pedidos usado pela ingestão: carrega as linhas existentes de um chunk
+ * com uma consulta {@code IN} por tabela e grava as linhas novas/alteradas com batches JDBC, sem
+ * passar pelo contexto de persistência do Hibernate.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBulkRepository {
+
+    static final int IN_CLAUSE_LIMIT = 1_000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Nome gravado de cada usuário existente, para que só os renomeados sejam atualizados.
+     */
+    public Map<Long, String> findUserNames(Collection<Long> userIds) {
+        Map<Long, String> names = new HashMap<>();
+        for (List<Long> slice : slices(userIds)) {
+            jdbc.query("SELECT user_id, name FROM users WHERE user_id IN (:ids)", Map.of("ids", slice),
+                    rs -> {
+                        names.put(rs.getLong(1), rs.getString(2));
+                    });
+        }
+        return names;
+    }
+
+    /**
+     * Linha gravada de cada pedido existente ({@code totalCents} é 0 para total nulo).
+     */
+    public Map<Long, OrderRow> findOrders(Collection<Long> orderIds) {
+        Map<Long, OrderRow> orders = new HashMap<>();
+        for (List<Long> slice : slices(orderIds)) {
+            jdbc.query("SELECT order_id, user_id, date, total FROM orders WHERE order_id IN (:ids)",
+                    Map.of("ids", slice),
+                    rs -> {
+                        orders.put(rs.getLong(1), new OrderRow(rs.getLong(1), rs.getLong(2),
+                                rs.getObject(3, LocalDate.class), Money.fromBigDecimal(rs.getBigDecimal(4))));
+                    });
+        }
+        return orders;
+    }
+
+    public Set<Long> findExistingProductIds(Collection<Long> productIds) {
+        return findExistingIds("SELECT product_id FROM products WHERE product_id IN (:ids)", productIds);
+    }
+
+    /**
+     * Valor gravado, em centavos, de cada item dos pedidos informados.
+     */
+    public Map<OrderItemId, Long> findOrderItemValues(Collection<Long> orderIds) {
+        Map<OrderItemId, Long> values = new HashMap<>();
+        for (List<Long> slice : slices(orderIds)) {
+            jdbc.query("SELECT order_id, product_id, item_value FROM order_items WHERE order_id IN (:ids)",
+                    Map.of("ids", slice),
+                    rs -> {
+                        values.put(new OrderItemId(rs.getLong(1), rs.getLong(2)), Money.fromBigDecimal(rs.getBigDecimal(3)));
+                    });
+        }
+        return values;
+    }
+
+    public void insertUsers(List<UserRow> rows) {
+        batch("INSERT INTO users (user_id, name) VALUES (:userId, :name)", rows, this::userParams);
+    }
+
+    public void updateUsers(List<UserRow> rows) {
+        batch("UPDATE users SET name = :name WHERE user_id = :userId", rows, this::userParams);
+    }
+
+    public void insertOrders(List<OrderRow> rows) {
+        batch("INSERT INTO orders (order_id, user_id, date, total) VALUES (:orderId, :userId, :date, :total)",
+                rows, this::orderParams);
+    }
+
+    public void updateOrders(List<OrderRow> rows) {
+        batch("UPDATE orders SET user_id = :userId, date = :date, total = :total WHERE order_id = :orderId",
+                rows, this::orderParams);
+    }
+
+    /**
+     * Soma o total do chunk ao total já gravado, para pedidos cujas linhas atravessam mais de um chunk.
+     */
+    public void accumulateOrders(List<OrderRow> rows) {
+        batch("UPDATE orders SET user_id = :userId, date = :date, total = COALESCE(total, 0) + :total WHERE order_id = :orderId",
+                rows, this::orderParams);
+    }
+
+    public void insertProducts(Collection<Long> productIds) {
+        batch("INSERT INTO products (product_id) VALUES (:productId)", new ArrayList<>(productIds),
+                id -> new MapSqlParameterSource("productId", id));
+    }
+
+    public void insertOrderItems(List<OrderItemRow> rows) {
+        batch("INSERT INTO order_items (order_id, product_id, item_value) VALUES (:orderId, :productId, :value)",
+                rows, this::itemParams);
+    }
+
+    public void updateOrderItems(List<OrderItemRow> rows) {
+        batch("UPDATE order_items SET item_value = :value WHERE order_id = :orderId AND product_id = :productId",
+                rows, this::itemParams);
+    }
+
+    // ---------------- helpers ----------------
+
+    private Set<Long> findExistingIds(String sql, Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (List<Long> slice : slices(ids)) {
+            existing.addAll(jdbc.queryForList(sql, Map.of("ids", slice), Long.class));
+        }
+        return existing;
+    }
+
+    static List<List<Long>> slices(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> slices = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += IN_CLAUSE_LIMIT) {
+            slices.add(all.subList(i, Math.min(all.size(), i + IN_CLAUSE_LIMIT)));
+        }
+        return slices;
+    }
+
+    private <T> void batch(String sql, List<T> rows, Function<T, SqlParameterSource> params) {
+        if (rows.isEmpty()) return;
+        SqlParameterSource[] batch = new SqlParameterSource[rows.size()];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = params.apply(rows.get(i));
+        }
+        jdbc.batchUpdate(sql, batch);
+    }
+
+    private SqlParameterSource userParams(UserRow row) {
+        return new MapSqlParameterSource()
+                .addValue("userId", row.userId())
+                .addValue("name", row.name());
+    }
+
+    private SqlParameterSource orderParams(OrderRow row) {
+        return new MapSqlParameterSource()
+                .addValue("orderId", row.orderId())
+                .addValue("userId", row.userId())
+                .addValue("date", row.date())
+                .addValue("total", Money.toBigDecimal(row.totalCents()));
+    }
+
+    private SqlParameterSource itemParams(OrderItemRow row) {
+        return new MapSqlParameterSource()
+                .addValue("orderId", row.orderId())
+                .addValue("productId", row.productId())
+                .addValue("value", Money.toBigDecimal(row.valueCents()));
+    }
+
+    public record UserRow(Long userId, String name) {}
+
+    public record OrderRow(Long orderId, Long userId, LocalDate date, long totalCents) {}
+
+    public record OrderItemRow(Long orderId, Long productId, long valueCents) {}
+}
@@ -0,0 +1,29 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Filtros da consulta de pedidos, com a mesma precedência do endpoint {@code GET /api/v1/orders}: o id do
+ * pedido vence; o intervalo de datas só vale com início e fim informados; sem filtros, todos os pedidos.
+ */
+public record OrderFilter(Long orderId, LocalDate start, LocalDate end) {
+
+    public static OrderFilter of(Optional<Long> orderId, Optional<LocalDate> start, Optional<LocalDate> end) {
+        if (orderId.isPresent()) {
+            return new OrderFilter(orderId.get(), null, null);
+        }
+        if (start.isPresent() && end.isPresent()) {
+            return new OrderFilter(null, start.get(), end.get());
+        }
+        return new OrderFilter(null, null, null);
+    }
+
+    public boolean byOrderId() {
+        return orderId != null;
+    }
+
+    public boolean byDateRange() {
+        return orderId == null && start != null && end != null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Leitura somente-consulta de pedidos como linhas planas {@code (usuário, pedido, item)}, ordenadas por usuário e
+ * pedido, sem hidratar entidades JPA. As linhas são entregues uma a uma para que o consumidor possa agrupá-las
+ * (ou escrevê-las) de forma incremental.
+ */
+@Repository
+public class OrderProjectionRepository {
+
+    static final int FETCH_SIZE = 1_000;
+
+    private static final String SELECT_ROWS = """
+            SELECT u.user_id, u.name, o.order_id, o.date, CAST(o.total * 100 AS BIGINT), i.product_id,
+                   CAST(i.item_value * 100 AS BIGINT)
+              FROM orders o
+              JOIN users u ON u.user_id = o.user_id
+              LEFT JOIN order_items i ON i.order_id = o.order_id
+            """;
+
+    private static final String ORDER_BY = " ORDER BY u.user_id, o.order_id, i.product_id";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public OrderProjectionRepository(DataSource dataSource) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(FETCH_SIZE);
+        this.jdbc = new NamedParameterJdbcTemplate(template);
+    }
+
+    public void forEachRow(OrderFilter filter, Consumer<OrderItemRow> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_ROWS);
+
+        if (filter.byOrderId()) {
+            sql.append(" WHERE o.order_id = :orderId");
+            params.addValue("orderId", filter.orderId());
+        } else if (filter.byDateRange()) {
+            sql.append(" WHERE o.date BETWEEN :start AND :end");
+            params.addValue("start", filter.start());
+            params.addValue("end", filter.end());
+        }
+        sql.append(ORDER_BY);
+
+        jdbc.query(sql.toString(), params, rs -> {
+            consumer.accept(mapRow(rs));
+        });
+    }
+
+    /**
+     * Data do pedido mais recente; lida pela ponta do índice {@code idx_orders_date}.
+     */
+    public Optional<LocalDate> findLatestDate() {
+        return Optional.ofNullable(jdbc.getJdbcTemplate().queryForObject("SELECT MAX(date) FROM orders", LocalDate.class));
+    }
+
+    /**
+     * Percorre o índice de datas a partir de {@code from} e atualiza as estatísticas de seletividade do H2, para
+     * que o otimizador escolha o range scan e as páginas do índice já estejam em cache na primeira consulta.
+     */
+    public long warmUp(LocalDate from) {
+        JdbcTemplate template = jdbc.getJdbcTemplate();
+        template.execute("ANALYZE");
+        Long rows = jdbc.queryForObject("SELECT COUNT(*) FROM orders WHERE date >= :from",
+                new MapSqlParameterSource("from", from), Long.class);
+        return rows == null ? 0 : rows;
+    }
+
+    private static OrderItemRow mapRow(ResultSet rs) throws SQLException {
+        Date date = rs.getDate(4);
+        long productId = rs.getLong(6);
+        boolean hasItem = !rs.wasNull();
+        return new OrderItemRow(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getLong(3),
+                date == null ? null : date.toLocalDate(),
+                rs.getLong(5),
+                hasItem ? productId : null,
+                hasItem ? rs.getLong(7) : 0);
+    }
+
+    /**
+     * Uma linha por item; pedidos sem itens aparecem uma vez com {@code productId} nulo. Valores em centavos,
+     * convertidos no próprio SQL para não criar um {@code BigDecimal} por coluna.
+     */
+    public record OrderItemRow(long userId, String name, long orderId, LocalDate date, long totalCents,
+                               Long productId, long valueCents) {}
+}
@@ -1,15 +1,38 @@
 package com.desafiotecnico.desafiomagalu.repository;
 
 import com.desafiotecnico.desafiomagalu.model.OrderEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
     Optional<OrderEntity> findByOrderId(Long orderId);
-    @EntityGraph(attributePaths = {"items", "items.product"})
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
     List<OrderEntity> findByDateBetween(LocalDate start, LocalDate end);
+
+    // keyset pagination: pages never use OFFSET, only "greater than the last key seen"
+
+    @Query("select o.orderId from OrderEntity o where o.orderId > :afterId order by o.orderId")
+    List<Long> findPageIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("""
+            select o.orderId from OrderEntity o
+             where o.date between :start and :end
+               and (o.date > :afterDate or (o.date = :afterDate and o.orderId > :afterId))
+             order by o.date, o.orderId""")
+    List<Long> findDatePageIdsAfter(@Param("start") LocalDate start,
+                                    @Param("end") LocalDate end,
+                                    @Param("afterDate") LocalDate afterDate,
+                                    @Param("afterId") Long afterId,
+                                    Limit limit);
+
+    @EntityGraph(attributePaths = {"user", "items"})
+    List<OrderEntity> findByOrderIdIn(Collection<Long> orderIds);
 }
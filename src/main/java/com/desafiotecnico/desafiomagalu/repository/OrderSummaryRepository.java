@@ -0,0 +1,130 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Resumo {@code daily_user_summary} (pedidos, itens e receita por usuário e dia). A ingestão lê a contribuição
+ * de cada pedido antes e depois de gravá-lo e aplica só a diferença, então reenvios, pedidos que mudam de
+ * usuário/data e pedidos gravados em vários chunks mantêm o resumo igual ao que uma agregação das tabelas daria.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private static final String MERGE_DELTA = """
+            MERGE INTO daily_user_summary t
+            USING (SELECT CAST(:date AS DATE) AS date, CAST(:userId AS BIGINT) AS user_id) s
+               ON t.date = s.date AND t.user_id = s.user_id
+             WHEN MATCHED THEN UPDATE SET orders = t.orders + :orders, items = t.items + :items,
+                  revenue_cents = t.revenue_cents + :revenue
+             WHEN NOT MATCHED THEN INSERT (date, user_id, orders, items, revenue_cents)
+                  VALUES (s.date, s.user_id, :orders, :items, :revenue)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Contribuição atual de cada pedido existente: usuário, data, quantidade de itens e total em centavos.
+     */
+    public Map<Long, Contribution> findContributions(Collection<Long> orderIds) {
+        Map<Long, Contribution> contributions = new HashMap<>();
+        for (List<Long> slice : OrderBulkRepository.slices(orderIds)) {
+            jdbc.query("""
+                            SELECT o.order_id, o.user_id, o.date, CAST(COALESCE(o.total, 0) * 100 AS BIGINT),
+                                   (SELECT COUNT(*) FROM order_items i WHERE i.order_id = o.order_id)
+                              FROM orders o
+                             WHERE o.order_id IN (:ids)
+                            """,
+                    Map.of("ids", slice),
+                    rs -> {
+                        Date date = rs.getDate(3);
+                        contributions.put(rs.getLong(1), new Contribution(
+                                rs.getLong(2), date == null ? null : date.toLocalDate(), rs.getLong(5), rs.getLong(4)));
+                    });
+        }
+        return contributions;
+    }
+
+    public void applyDeltas(Collection<SummaryRow> deltas) {
+        if (deltas.isEmpty()) return;
+        SqlParameterSource[] batch = deltas.stream()
+                .map(d -> new MapSqlParameterSource()
+                        .addValue("date", d.date())
+                        .addValue("userId", d.userId())
+                        .addValue("orders", d.orders())
+                        .addValue("items", d.items())
+                        .addValue("revenue", d.revenueCents()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(MERGE_DELTA, batch);
+    }
+
+    /**
+     * Linhas do resumo no intervalo (ou em todo o histórico, sem datas), agrupadas conforme {@code grouping};
+     * dias/usuários que ficaram sem pedidos não aparecem.
+     */
+    public List<SummaryRow> findRange(LocalDate start, LocalDate end, Grouping grouping) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = "";
+        if (start != null && end != null) {
+            where = " WHERE date BETWEEN :start AND :end";
+            params.addValue("start", start).addValue("end", end);
+        }
+        String sql = switch (grouping) {
+            case USER -> "SELECT user_id, NULL, SUM(orders), SUM(items), SUM(revenue_cents) FROM daily_user_summary"
+                    + where + " GROUP BY user_id HAVING SUM(orders) > 0 ORDER BY user_id";
+            case DAY -> "SELECT NULL, date, SUM(orders), SUM(items), SUM(revenue_cents) FROM daily_user_summary"
+                    + where + " GROUP BY date HAVING SUM(orders) > 0 ORDER BY date";
+            case USER_DAY -> "SELECT user_id, date, orders, items, revenue_cents FROM daily_user_summary"
+                    + (where.isEmpty() ? " WHERE" : where + " AND") + " orders > 0 ORDER BY date, user_id";
+        };
+        return jdbc.query(sql, params, (rs, n) -> {
+            long userId = rs.getLong(1);
+            boolean hasUser = !rs.wasNull();
+            Date date = rs.getDate(2);
+            return new SummaryRow(hasUser ? userId : null, date == null ? null : date.toLocalDate(),
+                    rs.getLong(3), rs.getLong(4), rs.getLong(5));
+        });
+    }
+
+    public boolean isEmpty() {
+        return !Boolean.TRUE.equals(jdbc.getJdbcTemplate()
+                .queryForObject("SELECT EXISTS (SELECT 1 FROM daily_user_summary)", Boolean.class));
+    }
+
+    /**
+     * Recalcula o resumo inteiro a partir de {@code orders}/{@code order_items}.
+     *
+     * @return quantidade de linhas do resumo
+     */
+    public int rebuild() {
+        jdbc.getJdbcTemplate().update("DELETE FROM daily_user_summary");
+        return jdbc.getJdbcTemplate().update("""
+                INSERT INTO daily_user_summary (date, user_id, orders, items, revenue_cents)
+                SELECT o.date, o.user_id, COUNT(*), SUM((SELECT COUNT(*) FROM order_items i WHERE i.order_id = o.order_id)),
+                       SUM(CAST(COALESCE(o.total, 0) * 100 AS BIGINT))
+                  FROM orders o
+                 WHERE o.date IS NOT NULL
+                 GROUP BY o.date, o.user_id
+                """);
+    }
+
+    public enum Grouping { USER, DAY, USER_DAY }
+
+    /**
+     * Estado de um pedido no resumo: em qual linha (usuário, dia) ele conta e com quanto.
+     */
+    public record Contribution(long userId, LocalDate date, long items, long revenueCents) {}
+
+    /**
+     * Linha do resumo, ou diferença a aplicar a ela; {@code userId}/{@code date} nulos quando agrupados fora.
+     */
+    public record SummaryRow(Long userId, LocalDate date, long orders, long items, long revenueCents) {}
+}
@@ -0,0 +1,78 @@
+package com.desafiotecnico.desafiomagalu.repository;
+
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderItemRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.UserRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Leitura das tabelas inteiras em ordem de chave primária para o snapshot, linha a linha por cursor JDBC
+ * (sem carregar a tabela em memória), e limpeza do banco antes de restaurar um snapshot.
+ */
+@Repository
+public class SnapshotRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public SnapshotRepository(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(OrderProjectionRepository.FETCH_SIZE);
+    }
+
+    public void forEachUser(Consumer<UserRow> consumer) {
+        jdbc.query("SELECT user_id, name FROM users ORDER BY user_id",
+                rs -> {
+                    consumer.accept(new UserRow(rs.getLong(1), rs.getString(2)));
+                });
+    }
+
+    public void forEachProduct(LongConsumer consumer) {
+        jdbc.query("SELECT product_id FROM products ORDER BY product_id",
+                rs -> {
+                    consumer.accept(rs.getLong(1));
+                });
+    }
+
+    /**
+     * Pedidos com total nulo saem com zero.
+     */
+    public void forEachOrder(Consumer<OrderRow> consumer) {
+        jdbc.query("SELECT order_id, user_id, date, CAST(COALESCE(total, 0) * 100 AS BIGINT) FROM orders ORDER BY order_id",
+                rs -> {
+                    Date date = rs.getDate(3);
+                    consumer.accept(new OrderRow(rs.getLong(1), rs.getLong(2),
+                            date == null ? null : date.toLocalDate(), rs.getLong(4)));
+                });
+    }
+
+    public void forEachOrderItem(Consumer<OrderItemRow> consumer) {
+        jdbc.query("SELECT order_id, product_id, CAST(item_value * 100 AS BIGINT) FROM order_items ORDER BY order_id, product_id",
+                rs -> {
+                    consumer.accept(new OrderItemRow(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+                });
+    }
+
+    public void forEachOrderFingerprint(BiConsumer<Long, Long> consumer) {
+        jdbc.query("SELECT order_id, content_hash FROM order_fingerprints ORDER BY order_id",
+                rs -> {
+                    consumer.accept(rs.getLong(1), rs.getLong(2));
+                });
+    }
+
+    /**
+     * Esvazia pedidos, itens, usuários, produtos, resumo e ledger, na ordem das chaves estrangeiras.
+     */
+    public void deleteAll() {
+        for (String table : new String[]{"order_items", "orders", "products", "users", "daily_user_summary",
+                "order_fingerprints", "ingested_files"}) {
+            jdbc.update("DELETE FROM " + table);
+        }
+    }
+}
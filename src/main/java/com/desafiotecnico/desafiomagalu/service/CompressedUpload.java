@@ -0,0 +1,174 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.github.luben.zstd.ZstdIOException;
+import com.github.luben.zstd.ZstdInputStream;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * {@link MultipartFile} que descompacta o upload sob demanda: cada {@link #getInputStream()} abre um stream de
+ * descompressão sobre o conteúdo recebido, então o texto puro nunca é montado em memória (exceto por quem pede
+ * {@link #getBytes()}) e só vai para disco via {@link #transferTo(File)}, que o parse paralelo usa para mapear o
+ * conteúdo.
+ * <p>
+ * O formato é reconhecido pelos primeiros bytes: gzip ({@code 1f 8b}), zstd ({@code 28 b5 2f fd}) ou zlib/deflate
+ * (cabeçalho {@code 78 xx} com checksum válido). Linhas do layout legado começam por dígito, então não há
+ * ambiguidade com um arquivo de texto.
+ * <p>
+ * {@link #getSize()} continua sendo o tamanho recebido (compactado).
+ */
+final class CompressedUpload implements MultipartFile {
+
+    enum Encoding { GZIP, ZSTD, DEFLATE }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MultipartFile upload;
+    private final Encoding encoding;
+    private final long maxSize;
+
+    private CompressedUpload(MultipartFile upload, Encoding encoding, long maxSize) {
+        this.upload = upload;
+        this.encoding = encoding;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param maxSize limite do conteúdo descompactado, em bytes; excedido, a leitura falha com
+     *                {@link BadFileFormatException}
+     * @return o próprio upload se ele não estiver compactado
+     */
+    static MultipartFile decode(MultipartFile upload, long maxSize) throws IOException {
+        if (upload == null || upload.isEmpty()) return upload;
+        Encoding encoding = detect(upload);
+        return encoding == null ? upload : new CompressedUpload(upload, encoding, maxSize);
+    }
+
+    static Encoding detect(MultipartFile upload) throws IOException {
+        byte[] head;
+        try (InputStream in = upload.getInputStream()) {
+            head = in.readNBytes(4);
+        }
+        if (head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+            return Encoding.GZIP;
+        }
+        if (head.length == 4 && (head[0] & 0xFF) == 0x28 && (head[1] & 0xFF) == 0xB5
+                && (head[2] & 0xFF) == 0x2F && (head[3] & 0xFF) == 0xFD) {
+            return Encoding.ZSTD;
+        }
+        if (head.length >= 2 && (head[0] & 0xFF) == 0x78 && (((head[0] & 0xFF) << 8) | (head[1] & 0xFF)) % 31 == 0) {
+            return Encoding.DEFLATE;
+        }
+        return null;
+    }
+
+    Encoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public String getName() {
+        return upload.getName();
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return upload.getOriginalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return upload.getContentType();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return upload.isEmpty();
+    }
+
+    @Override
+    public long getSize() {
+        return upload.getSize();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream raw = upload.getInputStream();
+        try {
+            InputStream decoded = switch (encoding) {
+                case GZIP -> new GZIPInputStream(raw, BUFFER_SIZE);
+                case ZSTD -> new ZstdInputStream(raw);
+                case DEFLATE -> new InflaterInputStream(raw);
+            };
+            return new Decoded(decoded);
+        } catch (IOException e) {
+            raw.close();
+            throw corrupted(e);
+        }
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (InputStream in = getInputStream(); OutputStream out = Files.newOutputStream(dest.toPath())) {
+            in.transferTo(out);
+        }
+    }
+
+    // ---------------- helpers ----------------
+
+    private BadFileFormatException corrupted(IOException e) {
+        return new BadFileFormatException("Arquivo " + encoding.name().toLowerCase()
+                + " corrompido ou truncado: " + e.getMessage(), e);
+    }
+
+    /**
+     * Conta os bytes descompactados e troca os erros de formato do descompressor por
+     * {@link BadFileFormatException}, para que um arquivo corrompido resulte em 400 e não em 500.
+     */
+    private final class Decoded extends FilterInputStream {
+
+        private long total;
+
+        private Decoded(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = in.read(b, off, len);
+            } catch (ZipException | ZstdIOException | EOFException e) {
+                throw corrupted(e);
+            }
+            if (n > 0 && (total += n) > maxSize) {
+                throw new BadFileFormatException("Arquivo descompactado excede o limite de " + maxSize + " bytes");
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashes do ledger de ingestão: SHA-256 do arquivo inteiro e um hash de 64 bits por pedido, acumulado linha a
+ * linha na ordem do arquivo. Por ser incremental, o hash de um pedido cujas linhas atravessam vários chunks é o
+ * mesmo que se o pedido tivesse sido agregado de uma vez.
+ */
+final class ContentHash {
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private ContentHash() {
+    }
+
+    static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = file.getInputStream()) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Início do hash de um pedido: quem fez, quando e o nome do usuário (mudar o nome também é uma alteração).
+     * O nome entra caractere a caractere, e não pelo {@code String.hashCode()} de 32 bits, em que nomes como
+     * "Aa" e "BB" colidem e a troca de um pelo outro passaria por pedido inalterado.
+     */
+    static long startOrder(long orderId, long userId, String userName, int epochDay) {
+        long h = step(orderId, userId);
+        h = addText(h, userName);
+        return step(h, epochDay);
+    }
+
+    static long addLine(long h, long productId, long valueCents) {
+        return step(step(h, productId), valueCents);
+    }
+
+    /**
+     * Mistura os caracteres de quatro em quatro (16 bits cada) e fecha com o tamanho, que separa "" de
+     * {@code null} e nomes que só diferem por caracteres {@code '\0'} no fim.
+     */
+    private static long addText(long h, String s) {
+        if (s == null) return step(h, -1);
+        long word = 0;
+        for (int i = 0; i < s.length(); i++) {
+            word = word << 16 | s.charAt(i);
+            if ((i & 3) == 3) {
+                h = step(h, word);
+                word = 0;
+            }
+        }
+        if ((s.length() & 3) != 0) h = step(h, word);
+        return step(h, s.length());
+    }
+
+    private static long step(long h, long value) {
+        return fmix(h * GOLDEN + value);
+    }
+
+    /**
+     * Finalizador do MurmurHash3: bijetivo, espalha cada bit de entrada por toda a saída.
+     */
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -1,64 +1,288 @@
 package com.desafiotecnico.desafiomagalu.service;
 
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.config.QueryProperties;
+import com.desafiotecnico.desafiomagalu.dto.IngestionSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.OrderPageDto;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto.OrderDto;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto.ProductDto;
 import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.exception.InvalidCursorException;
 import com.desafiotecnico.desafiomagalu.model.*;
+import com.desafiotecnico.desafiomagalu.parser.BoundedLineReader;
+import com.desafiotecnico.desafiomagalu.parser.FixedWidthRecordParser;
 import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser;
 import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import com.desafiotecnico.desafiomagalu.parser.LegacyRecordReader;
+import com.desafiotecnico.desafiomagalu.parser.MappedFileReader;
+import com.desafiotecnico.desafiomagalu.parser.RejectedLineHandler;
 import com.desafiotecnico.desafiomagalu.repository.*;
+import com.desafiotecnico.desafiomagalu.repository.IngestionLedgerRepository.IngestedFile;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderItemRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.UserRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.Contribution;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.SummaryRow;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileProcessingService {
 
+    static final int MAX_PAGE_SIZE = 1_000;
+
     private final LegacyLineParser parser;
+    private final FixedWidthRecordParser recordParser;
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final OrderItemRepository orderItemRepository;
+    private final OrderBulkRepository orderBulkRepository;
+    private final IngestionLedgerRepository ingestionLedgerRepository;
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final OrderCache orderCache;
+    private final IngestionProperties ingestionProperties;
+    private final QueryProperties queryProperties;
+    private final ParallelFileParser parallelFileParser;
+    private final PipelineMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionLocks ingestionLocks;
+    private final OrderSummaryRepository orderSummaryRepository;
 
     @Transactional
     public List<UserResponseDto> processFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new BadFileFormatException("Arquivo nulo ou vazio");
+        return processFile(file, new IngestionProgress());
+    }
+
+    /**
+     * @param progress recebe também o relatório de linhas rejeitadas no modo tolerante
+     */
+    @Transactional
+    public List<UserResponseDto> processFile(MultipartFile upload, IngestionProgress progress) {
+        final long start = System.nanoTime();
+        try {
+            MultipartFile file = decompressed(upload);
+            String fileHash = fileHash(file);
+            boolean duplicate = fileHash != null && ingestionLedgerRepository.findFile(fileHash).isPresent();
+
+            OrderAggregation aggregation = metrics.stage("parse", () -> {
+                if (ingestionProperties.isParallel()) {
+                    return parseParallel(file, rejectedLineHandler(progress));
+                }
+                OrderAggregation sequential = new OrderAggregation();
+                readLines(file, sequential, rejectedLineHandler(progress), () -> { });
+                return sequential;
+            });
+            if (duplicate) {
+                log.info("Arquivo {} já ingerido; nada a gravar", fileHash);
+                metrics.uploadDuplicate("sync");
+                return metrics.stage("build_response", () -> toResponse(aggregation));
+            }
+
+            List<UserResponseDto> response = persist(aggregation, new HashMap<>(), progress, true);
+            recordFile(fileHash, file, aggregation.lineCount(), aggregation.orderCount());
+
+            metrics.uploadFinished("sync", aggregation.lineCount(), file.getSize(), System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            recordFailure("sync", e);
+            throw e;
         }
+    }
 
-        Map<Long, UserAccumulator> users = new LinkedHashMap<>();
+    public IngestionSummaryDto processFileStreaming(MultipartFile file) {
+        return processFileStreaming(file, new IngestionProgress());
+    }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.isBlank()) continue;
+    /**
+     * Ingestão em chunks limitados por {@code app.ingestion.chunk-size}/{@code max-chunk-memory}. Por padrão o
+     * arquivo inteiro roda em uma transação; com {@code app.ingestion.commit-per-chunk} cada chunk é confirmado
+     * na sua própria transação, de modo que nem o banco nem o contexto de persistência acumulam o arquivo todo.
+     * Dentro de uma transação já aberta pelo chamador os chunks participam dela.
+     */
+    public IngestionSummaryDto processFileStreaming(MultipartFile upload, IngestionProgress progress) {
+        MultipartFile file;
+        try {
+            file = decompressed(upload);
+        } catch (RuntimeException e) {
+            recordFailure("streaming", e);
+            throw e;
+        }
+        if (ingestionProperties.isCommitPerChunk()) {
+            return streamFile(file, progress);
+        }
+        return transactionTemplate.execute(status -> streamFile(file, progress));
+    }
+
+    private IngestionSummaryDto streamFile(MultipartFile file, IngestionProgress progress) {
+        final int chunkSize = Math.max(1, ingestionProperties.getChunkSize());
+        final long maxChunkBytes = ingestionProperties.getMaxChunkMemory().toBytes();
+
+        final long start = System.nanoTime();
+        OrderAggregation chunk = new OrderAggregation();
+        Map<Long, Long> flushedOrders = new HashMap<>();
+        IngestionSummaryDto summary = new IngestionSummaryDto();
+        // o parse é intercalado com as descargas; o tempo delas é descontado do estágio "parse"
+        long[] flushNanos = new long[1];
+
+        try {
+            String fileHash = fileHash(file);
+            Optional<IngestedFile> previous = fileHash == null ? Optional.empty() : ingestionLedgerRepository.findFile(fileHash);
+            if (previous.isPresent()) {
+                log.info("Arquivo {} já ingerido; nada a gravar", fileHash);
+                summary.setLines(previous.get().lines());
+                summary.setOrders(previous.get().orders());
+                summary.setDuplicate(true);
+                metrics.uploadDuplicate("streaming");
+                return summary;
+            }
+
+            readLines(file, chunk, rejectedLineHandler(progress), () -> {
+                progress.lineParsed();
+                if (chunk.lineCount() >= chunkSize || chunk.estimatedBytes() >= maxChunkBytes) {
+                    flushNanos[0] += flushChunk(chunk, flushedOrders, progress, summary);
+                }
+            });
+            metrics.stageTime("parse", System.nanoTime() - start - flushNanos[0]);
+            flushChunk(chunk, flushedOrders, progress, summary);
+
+            summary.setOrders(flushedOrders.size());
+            summary.setSkippedOrders(progress.getOrdersSkipped());
+            summary.setRejectedLines(progress.getRejectedLines());
+            inChunkTransaction(() -> recordFile(fileHash, file, summary.getLines(), summary.getOrders()));
+        } catch (RuntimeException e) {
+            recordFailure("streaming", e);
+            throw e;
+        }
+
+        metrics.uploadFinished("streaming", summary.getLines(), file.getSize(), System.nanoTime() - start);
+        return summary;
+    }
+
+    /**
+     * Uploads compactados (gzip, zstd ou deflate, reconhecidos pelos primeiros bytes) passam a ser lidos por um
+     * stream de descompressão; o hash do ledger e o parse enxergam o texto puro.
+     */
+    private MultipartFile decompressed(MultipartFile upload) {
+        try {
+            MultipartFile file = CompressedUpload.decode(upload, ingestionProperties.getMaxDecompressedSize().toBytes());
+            if (file instanceof CompressedUpload compressed) {
+                log.info("Upload {} compactado com {}", upload.getOriginalFilename(),
+                        compressed.getEncoding().name().toLowerCase());
+            }
+            return file;
+        } catch (IOException e) {
+            log.error("Erro ao processar arquivo", e);
+            throw new RuntimeException("Erro ao processar arquivo: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SHA-256 do arquivo para o ledger, ou {@code null} com a deduplicação desligada.
+     */
+    private String fileHash(MultipartFile file) {
+        if (!ingestionProperties.isDeduplicate()) return null;
+        checkNotEmpty(file);
+        try {
+            return ContentHash.sha256(file);
+        } catch (IOException e) {
+            log.error("Erro ao processar arquivo", e);
+            throw new RuntimeException("Erro ao processar arquivo: " + e.getMessage(), e);
+        }
+    }
 
-                ParsedLine parsed = parser.parse(line);
+    private void recordFile(String fileHash, MultipartFile file, long lines, long orders) {
+        if (fileHash != null) {
+            ingestionLedgerRepository.recordFile(new IngestedFile(fileHash, file.getSize(), lines, orders));
+        }
+    }
 
-                final Long userId = parsed.getUserId();
-                final String userName = parsed.getUserName();
-                final Long orderId = parsed.getOrderId();
-                final LocalDate orderDate = parsed.getDate();
-                final Long productId = parsed.getProductId();
-                final BigDecimal value = parsed.getValue();
+    private void recordFailure(String mode, RuntimeException e) {
+        // no modo tolerante as rejeições já foram contadas pelo handler
+        if (e instanceof BadFileFormatException && !ingestionProperties.isLenient()) {
+            metrics.rejectedLines(1);
+        }
+        metrics.uploadFailed(mode);
+    }
 
-                UserAccumulator ua = users.computeIfAbsent(userId, id -> new UserAccumulator(userName));
-                OrderAccumulator oa = ua.orders.computeIfAbsent(orderId, id -> new OrderAccumulator(orderDate));
+    /**
+     * Modo estrito: a primeira linha inválida aborta o upload. Modo tolerante: a linha é descartada e vai para o
+     * relatório em {@code progress}, até {@code app.ingestion.max-rejected-lines}.
+     */
+    private RejectedLineHandler rejectedLineHandler(IngestionProgress progress) {
+        if (!ingestionProperties.isLenient()) return RejectedLineHandler.STRICT;
+
+        final int maxRejected = ingestionProperties.getMaxRejectedLines();
+        return (lineNumber, error) -> {
+            metrics.rejectedLines(1);
+            if (progress.getLinesRejected() >= maxRejected) {
+                throw new BadFileFormatException("Limite de " + maxRejected + " linhas rejeitadas excedido na linha "
+                        + lineNumber + ": " + error.getMessage(), error);
+            }
+            log.debug("Linha {} rejeitada: {}", lineNumber, error.getMessage());
+            progress.lineRejected(lineNumber, error);
+        };
+    }
 
-                oa.products.add(new ProductLine(productId, value));
-                oa.total = oa.total.add(value);
+    /**
+     * Lê o arquivo acumulando cada linha em {@code aggregation}; {@code afterLine} roda depois de cada linha
+     * aceita (o modo streaming o usa para descarregar o chunk).
+     */
+    private void readLines(MultipartFile file, OrderAggregation aggregation, RejectedLineHandler rejectedLines,
+                           Runnable afterLine) {
+        checkNotEmpty(file);
+
+        try {
+            if (useMemoryMap(file)) {
+                LegacyRecordReader reader = new LegacyRecordReader(recordParser, rejectedLines);
+                withMappedFile(file, (window, limit) ->
+                        reader.read(window, 0, limit, record -> {
+                            aggregation.add(record);
+                            afterLine.run();
+                        }));
+            } else if (ingestionProperties.isFastParser()) {
+                try (InputStream in = file.getInputStream()) {
+                    new LegacyRecordReader(recordParser, rejectedLines).read(in, record -> {
+                        aggregation.add(record);
+                        afterLine.run();
+                    });
+                }
+            } else {
+                try (BoundedLineReader br = new BoundedLineReader(new InputStreamReader(file.getInputStream()))) {
+                    String line;
+                    long lineNumber = 0;
+                    while ((line = br.readLine()) != null) {
+                        lineNumber++;
+                        if (line.isBlank()) continue;
+                        ParsedLine parsed;
+                        try {
+                            parsed = parser.parse(line);
+                        } catch (BadFileFormatException e) {
+                            rejectedLines.reject(lineNumber, e);
+                            continue;
+                        }
+                        aggregation.add(parsed);
+                        afterLine.run();
+                    }
+                }
             }
         } catch (BadFileFormatException e) {
             throw e;
@@ -66,86 +290,376 @@ public class FileProcessingService {
             log.error("Erro ao processar arquivo", e);
             throw new RuntimeException("Erro ao processar arquivo: " + e.getMessage(), e);
         }
+    }
 
-        List<UserResponseDto> result = new ArrayList<>();
+    /**
+     * O parse paralelo precisa do conteúdo inteiro endereçável. Só um upload pequeno e sem compressão é lido
+     * para o heap; os demais (inclusive os compactados, cujo tamanho descompactado não se conhece) são spoolados
+     * em disco e lidos pelas mesmas janelas mapeadas do modo {@code memory-mapped}, então o heap não cresce com o
+     * arquivo nem esbarra no limite de 2 GB de um array.
+     */
+    private OrderAggregation parseParallel(MultipartFile file, RejectedLineHandler rejectedLines) {
+        checkNotEmpty(file);
+
+        try {
+            if (useMemoryMap(file) || !fitsInHeap(file)) {
+                OrderAggregation aggregation = new OrderAggregation();
+                long[] linesBefore = new long[1];
+                withMappedFile(file, (window, limit) -> {
+                    ParallelFileParser.Result result = parallelFileParser.parse(window, 0, limit, linesBefore[0], rejectedLines);
+                    aggregation.merge(result.aggregation());
+                    linesBefore[0] += result.lines();
+                });
+                return aggregation;
+            }
+            ByteBuffer content = ByteBuffer.wrap(file.getBytes());
+            return parallelFileParser.parse(content, 0, content.limit(), 0, rejectedLines).aggregation();
+        } catch (BadFileFormatException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erro ao processar arquivo", e);
+            throw new RuntimeException("Erro ao processar arquivo: " + e.getMessage(), e);
+        }
+    }
 
-        for (Map.Entry<Long, UserAccumulator> ue : users.entrySet()) {
-            Long userId = ue.getKey();
-            UserAccumulator ua = ue.getValue();
+    private static void checkNotEmpty(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadFileFormatException("Arquivo nulo ou vazio");
+        }
+    }
 
-            UserEntity userEntity = userRepository.findByUserId(userId)
-                    .orElseGet(() -> {
-                        UserEntity u = new UserEntity();
-                        u.setUserId(userId);
-                        u.setName(ua.name);
-                        return userRepository.save(u);
-                    });
-            userEntity.setName(ua.name);
-            userEntity = userRepository.save(userEntity);
+    /**
+     * Um upload compactado nunca é mapeado: descompactá-lo em disco só para mapear custaria a escrita que a
+     * compressão economiza, então ele segue pelo {@code InputStream}.
+     */
+    private boolean useMemoryMap(MultipartFile file) {
+        return ingestionProperties.isMemoryMapped()
+                && !(file instanceof CompressedUpload)
+                && file.getSize() >= ingestionProperties.getMemoryMapThreshold().toBytes();
+    }
 
-            final UserEntity userFinal = userEntity;
+    private boolean fitsInHeap(MultipartFile file) {
+        return !(file instanceof CompressedUpload)
+                && file.getSize() < ingestionProperties.getMemoryMapThreshold().toBytes();
+    }
 
-            UserResponseDto userDto = new UserResponseDto();
-            userDto.setUserId(userId);
-            userDto.setName(ua.name);
-            userDto.setOrders(new ArrayList<>());
+    /**
+     * Grava o upload em um arquivo temporário ({@code transferTo} só move o arquivo quando o container já o
+     * spoolou em disco; um upload compactado é gravado já descompactado) e percorre o conteúdo por janelas mapeadas
+     * em memória.
+     */
+    private static void withMappedFile(MultipartFile file, MappedFileReader.WindowConsumer consumer) throws IOException {
+        Path spooled = Files.createTempFile("upload-", ".txt");
+        try {
+            Files.delete(spooled);
+            file.transferTo(spooled.toFile());
+            try (MappedFileReader reader = MappedFileReader.open(spooled)) {
+                reader.forEachWindow(consumer);
+            }
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
 
-            for (Map.Entry<Long, OrderAccumulator> oe : ua.orders.entrySet()) {
-                Long orderId = oe.getKey();
-                OrderAccumulator oa = oe.getValue();
+    /**
+     * @return tempo gasto na descarga, em nanossegundos
+     */
+    private long flushChunk(OrderAggregation chunk, Map<Long, Long> flushedOrders, IngestionProgress progress,
+                            IngestionSummaryDto summary) {
+        if (chunk.isEmpty()) return 0;
+
+        long start = System.nanoTime();
+        inChunkTransaction(() -> persist(chunk, flushedOrders, progress, false));
+
+        summary.setLines(summary.getLines() + chunk.lineCount());
+        summary.setChunks(summary.getChunks() + 1);
+        log.debug("Chunk {} descarregado ({} linhas, ~{} bytes)", summary.getChunks(), chunk.lineCount(), chunk.estimatedBytes());
+        chunk.clear();
+        return System.nanoTime() - start;
+    }
 
-                OrderEntity orderEntity = orderRepository.findByOrderId(orderId)
-                        .orElseGet(() -> {
-                            OrderEntity o = new OrderEntity();
-                            o.setOrderId(orderId);
-                            o.setUser(userFinal);
-                            return o;
-                        });
-                orderEntity.setUser(userFinal);
-                orderEntity.setDate(oa.date);
-                orderEntity.setTotal(oa.total);
-                orderEntity = orderRepository.save(orderEntity);
+    private void inChunkTransaction(Runnable work) {
+        if (ingestionProperties.isCommitPerChunk()) {
+            transactionTemplate.executeWithoutResult(status -> work.run());
+        } else {
+            work.run();
+        }
+    }
 
-                final OrderEntity orderFinal = orderEntity;
+    /**
+     * Persiste o conteúdo agregado de forma set-based: uma consulta {@code IN} por tabela para descobrir o que
+     * já existe e batches JDBC para inserir/atualizar. Pedidos presentes em {@code flushedOrders} já tiveram
+     * parte das linhas gravadas por um chunk anterior do mesmo arquivo, então o total do chunk é somado ao
+     * total existente em vez de substituí-lo.
+     * <p>
+     * {@code flushedOrders} guarda também o hash acumulado de cada pedido ({@link ContentHash}). Um pedido cujo
+     * hash é igual ao do ledger ({@code order_fingerprints}) tem exatamente o conteúdo da última gravação e é
+     * pulado: regravá-lo não mudaria nada. Usuários e produtos só são tocados pelos pedidos gravados.
+     * <p>
+     * Uploads simultâneos só se serializam nas linhas em comum ({@link IngestionLocks}): usuários e pedidos do
+     * chunk são travados antes de qualquer leitura, e produtos só quando ainda não existem, com uma nova consulta
+     * depois de obtido o lock. As chaves ficam presas até o fim da transação.
+     */
+    private List<UserResponseDto> persist(OrderAggregation aggregation, Map<Long, Long> flushedOrders,
+                                          IngestionProgress progress, boolean buildResponse) {
+        List<IngestionLocks.Held> held = new ArrayList<>();
+        try {
+            return persist(aggregation, flushedOrders, progress, buildResponse, held);
+        } finally {
+            held.forEach(IngestionLocks.Held::close);
+        }
+    }
 
-                List<ProductDto> productsDto = new ArrayList<>();
-                for (ProductLine pl : oa.products) {
-                    ProductEntity productEntity = productRepository.findById(pl.productId)
-                            .orElseGet(() -> {
-                                ProductEntity p = new ProductEntity();
-                                p.setProductId(pl.productId);
-                                return productRepository.save(p);
-                            });
-
-                    final ProductEntity productFinal = productEntity;
-                    final BigDecimal valFinal = pl.value;
-
-                    OrderItemId itemId = new OrderItemId(orderFinal.getOrderId(), productFinal.getProductId());
-                    OrderItemEntity itemEntity = orderItemRepository.findById(itemId)
-                            .orElseGet(() -> {
-                                OrderItemEntity it = new OrderItemEntity();
-                                it.setId(itemId);
-                                it.setOrder(orderFinal);
-                                it.setProduct(productFinal);
-                                it.setValue(valFinal);
-                                return it;
-                            });
-
-                    itemEntity.setOrder(orderFinal);
-                    itemEntity.setProduct(productFinal);
-                    itemEntity.setValue(valFinal);
-                    orderItemRepository.save(itemEntity);
+    private List<UserResponseDto> persist(OrderAggregation aggregation, Map<Long, Long> flushedOrders,
+                                          IngestionProgress progress, boolean buildResponse,
+                                          List<IngestionLocks.Held> held) {
+        long[] hashes = new long[aggregation.orderCount()];
+        Set<Long> firstSeen = new LinkedHashSet<>();
+        Set<Long> chunkUsers = new HashSet<>();
+        Set<Long> chunkOrders = new HashSet<>();
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            chunkUsers.add(aggregation.userId(u));
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                chunkOrders.add(aggregation.orderId(o));
+                Long previous = flushedOrders.get(aggregation.orderId(o));
+                long h = previous != null
+                        ? previous
+                        : ContentHash.startOrder(aggregation.orderId(o), aggregation.userId(u),
+                                aggregation.userName(u), aggregation.orderEpochDay(o));
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
+                    h = ContentHash.addLine(h, aggregation.lineProductId(l), aggregation.lineValueCents(l));
+                }
+                hashes[o] = h;
+                if (previous == null) firstSeen.add(aggregation.orderId(o));
+            }
+        }
+        held.add(lock(Map.of("users", chunkUsers, "orders", chunkOrders)));
+
+        final long fingerprintStart = System.nanoTime();
+        Map<Long, Long> fingerprints = ingestionProperties.isDeduplicate() && !firstSeen.isEmpty()
+                ? ingestionLedgerRepository.findOrderFingerprints(firstSeen)
+                : Map.of();
+        final long fingerprintNanos = System.nanoTime() - fingerprintStart;
+
+        boolean[] write = new boolean[aggregation.orderCount()];
+        Map<Long, Long> changedFingerprints = new HashMap<>();
+        long skipped = 0;
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> orderIds = new LinkedHashSet<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                Long orderId = aggregation.orderId(o);
+                if (!flushedOrders.containsKey(orderId) && Objects.equals(fingerprints.get(orderId), hashes[o])) {
+                    skipped++;
+                    continue;
+                }
+                write[o] = true;
+                changedFingerprints.put(orderId, hashes[o]);
+                userIds.add(aggregation.userId(u));
+                orderIds.add(orderId);
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
+                    productIds.add(aggregation.lineProductId(l));
+                }
+            }
+        }
+
+        final long lookupStart = System.nanoTime();
+        Map<Long, String> storedNames = orderBulkRepository.findUserNames(userIds);
+        Map<Long, OrderRow> storedOrders = orderBulkRepository.findOrders(orderIds);
+        Set<Long> existingOrders = storedOrders.keySet();
+        Set<Long> existingProducts = orderBulkRepository.findExistingProductIds(productIds);
+        Map<OrderItemId, Long> storedItems = existingOrders.isEmpty()
+                ? new HashMap<>()
+                : orderBulkRepository.findOrderItemValues(existingOrders);
+        long lookupNanos = System.nanoTime() - lookupStart;
+
+        Set<Long> newProducts = new LinkedHashSet<>(productIds);
+        newProducts.removeAll(existingProducts);
+        if (!newProducts.isEmpty()) {
+            // outro upload pode ter inserido o produto enquanto esperávamos pelo lock
+            held.add(lock(Map.of("products", newProducts)));
+            long recheckStart = System.nanoTime();
+            newProducts.removeAll(orderBulkRepository.findExistingProductIds(newProducts));
+            lookupNanos += System.nanoTime() - recheckStart;
+        }
+        metrics.stageTime("persist_lookup", fingerprintNanos + lookupNanos);
+
+        final long summaryStart = System.nanoTime();
+        Map<Long, Contribution> contributionsBefore = existingOrders.isEmpty()
+                ? Map.of()
+                : orderSummaryRepository.findContributions(existingOrders);
+        // um pedido que muda de usuário tira a contribuição da linha do usuário anterior, que também é travado
+        Set<Long> previousUsers = new HashSet<>();
+        for (Contribution c : contributionsBefore.values()) {
+            if (!chunkUsers.contains(c.userId())) previousUsers.add(c.userId());
+        }
+        if (!previousUsers.isEmpty()) {
+            held.add(lock(Map.of("users", previousUsers)));
+        }
+        long summaryNanos = System.nanoTime() - summaryStart;
+
+        List<UserRow> newUsers = new ArrayList<>();
+        List<UserRow> changedUsers = new ArrayList<>();
+        List<OrderRow> newOrders = new ArrayList<>();
+        List<OrderRow> changedOrders = new ArrayList<>();
+        List<OrderRow> accumulatedOrders = new ArrayList<>();
+        List<OrderItemRow> newItems = new ArrayList<>();
+        List<OrderItemRow> changedItems = new ArrayList<>();
+        // só o que de fato mudou é regravado e invalidado no cache
+        Set<Long> touchedOrders = new LinkedHashSet<>();
+        Set<LocalDate> touchedDates = new HashSet<>();
+
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            Long userId = aggregation.userId(u);
+
+            if (userIds.contains(userId)) {
+                UserRow userRow = new UserRow(userId, aggregation.userName(u));
+                if (!storedNames.containsKey(userId)) {
+                    newUsers.add(userRow);
+                } else if (!Objects.equals(storedNames.get(userId), userRow.name())) {
+                    changedUsers.add(userRow);
+                }
+            }
+
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                Long orderId = aggregation.orderId(o);
+                boolean flushed = flushedOrders.put(orderId, hashes[o]) != null;
+                if (!write[o]) continue;
+
+                OrderRow orderRow = new OrderRow(orderId, userId, aggregation.orderDate(o), aggregation.orderTotalCents(o));
+                OrderRow stored = storedOrders.get(orderId);
+                boolean touched = true;
+                if (flushed) {
+                    accumulatedOrders.add(orderRow);
+                } else if (stored == null) {
+                    newOrders.add(orderRow);
+                } else if (!stored.equals(orderRow)) {
+                    changedOrders.add(orderRow);
+                    touchedDates.add(stored.date());
+                } else {
+                    touched = false;
+                }
+
+                Map<Long, Long> itemValues = new LinkedHashMap<>();
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
+                    itemValues.put(aggregation.lineProductId(l), aggregation.lineValueCents(l));
+                }
+                for (Map.Entry<Long, Long> iv : itemValues.entrySet()) {
+                    OrderItemId itemId = new OrderItemId(orderId, iv.getKey());
+                    OrderItemRow itemRow = new OrderItemRow(orderId, iv.getKey(), iv.getValue());
+                    Long storedValue = storedItems.put(itemId, iv.getValue());
+                    if (storedValue == null) {
+                        newItems.add(itemRow);
+                    } else if (storedValue.longValue() != iv.getValue()) {
+                        changedItems.add(itemRow);
+                    } else {
+                        continue;
+                    }
+                    touched = true;
+                }
+                if (touched) {
+                    touchedOrders.add(orderId);
+                    touchedDates.add(orderRow.date());
+                }
+            }
+        }
+
+        metrics.stage("persist_users", () -> {
+            orderBulkRepository.insertUsers(newUsers);
+            orderBulkRepository.updateUsers(changedUsers);
+        });
+        metrics.stage("persist_products", () -> orderBulkRepository.insertProducts(newProducts));
+        metrics.stage("persist_orders", () -> {
+            orderBulkRepository.insertOrders(newOrders);
+            orderBulkRepository.updateOrders(changedOrders);
+            orderBulkRepository.accumulateOrders(accumulatedOrders);
+        });
+        metrics.stage("persist_items", () -> {
+            orderBulkRepository.insertOrderItems(newItems);
+            orderBulkRepository.updateOrderItems(changedItems);
+        });
+        ingestionLedgerRepository.saveOrderFingerprints(changedFingerprints);
+
+        final long summaryDeltaStart = System.nanoTime();
+        if (!orderIds.isEmpty()) {
+            orderSummaryRepository.applyDeltas(
+                    summaryDeltas(contributionsBefore, orderSummaryRepository.findContributions(orderIds)));
+        }
+        metrics.stageTime("persist_summary", summaryNanos + System.nanoTime() - summaryDeltaStart);
+        metrics.rowsWritten("users", newUsers.size() + changedUsers.size());
+        metrics.rowsWritten("products", newProducts.size());
+        metrics.rowsWritten("orders", newOrders.size() + changedOrders.size() + accumulatedOrders.size());
+        metrics.rowsWritten("order_items", newItems.size() + changedItems.size());
+
+        orderCache.invalidate(touchedOrders, changedUsers.stream().map(UserRow::userId).toList(), touchedDates);
+
+        metrics.ordersSkipped(skipped);
+        progress.ordersSkipped(skipped);
+        progress.rowsPersisted(newUsers.size() + changedUsers.size() + newProducts.size()
+                + newOrders.size() + changedOrders.size() + accumulatedOrders.size()
+                + newItems.size() + changedItems.size());
+
+        return buildResponse ? metrics.stage("build_response", () -> toResponse(aggregation)) : List.of();
+    }
+
+    /**
+     * Diferença por (usuário, dia) entre as contribuições dos pedidos antes e depois da gravação; linhas que
+     * não mudaram ficam de fora.
+     */
+    static List<SummaryRow> summaryDeltas(Map<Long, Contribution> before, Map<Long, Contribution> after) {
+        record Cell(long userId, LocalDate date) {}
+        Map<Cell, long[]> deltas = new LinkedHashMap<>();
+        BiConsumer<Contribution, Integer> apply = (c, sign) -> {
+            if (c.date() == null) return;
+            long[] d = deltas.computeIfAbsent(new Cell(c.userId(), c.date()), k -> new long[3]);
+            d[0] += sign;
+            d[1] += sign * c.items();
+            d[2] += sign * c.revenueCents();
+        };
+        before.values().forEach(c -> apply.accept(c, -1));
+        after.values().forEach(c -> apply.accept(c, 1));
+
+        List<SummaryRow> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((cell, d) -> {
+            if (d[0] != 0 || d[1] != 0 || d[2] != 0) {
+                rows.add(new SummaryRow(cell.userId(), cell.date(), d[0], d[1], d[2]));
+            }
+        });
+        return rows;
+    }
 
+    private IngestionLocks.Held lock(Map<String, Set<Long>> idsByTable) {
+        long start = System.nanoTime();
+        try {
+            return ingestionLocks.acquire(idsByTable, ingestionProperties.getLockTimeout());
+        } finally {
+            metrics.stageTime("persist_lock", System.nanoTime() - start);
+        }
+    }
+
+    private static List<UserResponseDto> toResponse(OrderAggregation aggregation) {
+        List<UserResponseDto> result = new ArrayList<>(aggregation.userCount());
+
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            UserResponseDto userDto = new UserResponseDto();
+            userDto.setUserId(aggregation.userId(u));
+            userDto.setName(aggregation.userName(u));
+            userDto.setOrders(new ArrayList<>());
+
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                List<ProductDto> productsDto = new ArrayList<>();
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
                     ProductDto pDto = new ProductDto();
-                    pDto.setProductId(productFinal.getProductId());
-                    pDto.setValue(format(valFinal));
+                    pDto.setProductId(aggregation.lineProductId(l));
+                    pDto.setValue(Money.format(aggregation.lineValueCents(l)));
                     productsDto.add(pDto);
                 }
 
                 OrderDto orderDto = new OrderDto();
-                orderDto.setOrderId(orderId);
-                orderDto.setDate(oa.date.toString());
-                orderDto.setTotal(format(oa.total));
+                orderDto.setOrderId(aggregation.orderId(o));
+                orderDto.setDate(aggregation.orderDate(o).toString());
+                orderDto.setTotal(Money.format(aggregation.orderTotalCents(o)));
                 orderDto.setProducts(productsDto);
 
                 userDto.getOrders().add(orderDto);
@@ -157,22 +671,98 @@ public class FileProcessingService {
         return result;
     }
 
+    /**
+     * Consulta pela projeção plana (usuário, pedido, item) em uma única consulta JDBC, montando os DTOs direto das
+     * linhas, sem entidades gerenciadas nem dirty-checking. O resultado vem ordenado por usuário e pedido.
+     * Consultas por {@code orderId} e por intervalo de datas passam pelo {@link OrderCache}.
+     */
     @Transactional(readOnly = true)
     public List<UserResponseDto> query(Optional<Long> optOrderId,
                                        Optional<LocalDate> optStart,
                                        Optional<LocalDate> optEnd) {
 
-        List<OrderEntity> orders;
-        if (optOrderId.isPresent()) {
-            orders = orderRepository.findByOrderId(optOrderId.get())
-                    .map(List::of)
-                    .orElseGet(Collections::emptyList);
-        } else if (optStart.isPresent() && optEnd.isPresent()) {
-            orders = orderRepository.findByDateBetween(optStart.get(), optEnd.get());
+        OrderFilter filter = OrderFilter.of(optOrderId, optStart, optEnd);
+        return metrics.query(filterTag(filter), () -> {
+            if (queryProperties.getCache().isEnabled()) {
+                if (filter.byOrderId()) return orderCache.findOrder(filter.orderId());
+                if (filter.byDateRange()) return orderCache.findRange(filter.start(), filter.end());
+            }
+
+            OrderRowFolder folder = new OrderRowFolder();
+            orderProjectionRepository.forEachRow(filter, folder);
+            return folder.users();
+        });
+    }
+
+    static String filterTag(OrderFilter filter) {
+        if (filter.byOrderId()) return "order_id";
+        if (filter.byDateRange()) return "date_range";
+        return "all";
+    }
+
+    /**
+     * Página de pedidos por keyset: {@code order_id > cursor} (ou {@code (date, order_id) > cursor} quando filtrado
+     * por datas), buscando primeiro os ids da página e depois os pedidos com usuário e itens em uma única consulta.
+     */
+    @Transactional(readOnly = true)
+    public OrderPageDto queryPage(Optional<Long> optOrderId,
+                                  Optional<LocalDate> optStart,
+                                  Optional<LocalDate> optEnd,
+                                  int limit,
+                                  Optional<String> after) {
+
+        OrderFilter filter = OrderFilter.of(optOrderId, optStart, optEnd);
+        return metrics.query("page", () -> loadPage(filter, limit, after));
+    }
+
+    private OrderPageDto loadPage(OrderFilter filter, int limit, Optional<String> after) {
+        final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        OrderPageCursor cursor = after.filter(c -> !c.isBlank()).map(OrderPageCursor::decode).orElse(null);
+
+        List<Long> ids;
+        if (filter.byOrderId()) {
+            ids = cursor == null && orderRepository.existsById(filter.orderId())
+                    ? List.of(filter.orderId())
+                    : List.of();
+        } else if (filter.byDateRange()) {
+            if (cursor != null && cursor.date() == null) {
+                throw new InvalidCursorException("Cursor não corresponde a uma consulta por intervalo de datas");
+            }
+            ids = orderRepository.findDatePageIdsAfter(filter.start(), filter.end(),
+                    cursor == null ? filter.start() : cursor.date(),
+                    cursor == null ? Long.MIN_VALUE : cursor.orderId(),
+                    Limit.of(pageSize + 1));
         } else {
-            orders = orderRepository.findAll();
+            ids = orderRepository.findPageIdsAfter(cursor == null ? Long.MIN_VALUE : cursor.orderId(),
+                    Limit.of(pageSize + 1));
+        }
+
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+
+        Map<Long, OrderEntity> byId = new HashMap<>();
+        for (OrderEntity oe : orderRepository.findByOrderIdIn(ids)) {
+            byId.put(oe.getOrderId(), oe);
         }
+        List<OrderEntity> orders = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            OrderEntity oe = byId.get(id);
+            if (oe != null) orders.add(oe);
+        }
+
+        OrderPageDto page = new OrderPageDto();
+        page.setUsers(toUserDtos(orders));
+        page.setLimit(pageSize);
+        if (hasNext && !orders.isEmpty()) {
+            OrderEntity last = orders.getLast();
+            page.setNextCursor(new OrderPageCursor(filter.byDateRange() ? last.getDate() : null, last.getOrderId()).encode());
+        }
+        return page;
+    }
 
+    private static List<UserResponseDto> toUserDtos(List<OrderEntity> orders) {
         Map<Long, UserResponseDto> users = new LinkedHashMap<>();
 
         for (OrderEntity oe : orders) {
@@ -190,15 +780,14 @@ public class FileProcessingService {
             OrderDto ord = new OrderDto();
             ord.setOrderId(oe.getOrderId());
             ord.setDate(oe.getDate() == null ? null : oe.getDate().toString());
-            ord.setTotal(format(oe.getTotal()));
+            ord.setTotal(Money.format(oe.getTotal()));
             ord.setProducts(new ArrayList<>());
 
             if (oe.getItems() != null) {
                 for (OrderItemEntity item : oe.getItems()) {
-                    ProductEntity p = item.getProduct();
                     ProductDto pDto = new ProductDto();
-                    pDto.setProductId(p.getProductId());
-                    pDto.setValue(format(item.getValue()));
+                    pDto.setProductId(item.getId().getProductId());
+                    pDto.setValue(Money.format(item.getValue()));
                     ord.getProducts().add(pDto);
                 }
             }
@@ -208,26 +797,4 @@ public class FileProcessingService {
 
         return new ArrayList<>(users.values());
     }
-
-    // ---------------- helpers ----------------
-
-    private static class UserAccumulator {
-        final String name;
-        final Map<Long, OrderAccumulator> orders = new LinkedHashMap<>();
-        UserAccumulator(String name) { this.name = name; }
-    }
-
-    private static class OrderAccumulator {
-        final LocalDate date;
-        final List<ProductLine> products = new ArrayList<>();
-        BigDecimal total = BigDecimal.ZERO;
-        OrderAccumulator(LocalDate date) { this.date = date; }
-    }
-
-    private static record ProductLine(Long productId, BigDecimal value) {}
-
-    private static String format(BigDecimal b) {
-        if (b == null) return "0.00";
-        return b.setScale(2, RoundingMode.HALF_UP).toPlainString();
-    }
 }
@@ -0,0 +1,134 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.IngestionConflictException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tabela de locks por chave ({@code users}, {@code orders}, {@code products} + id) que serializa apenas os
+ * uploads que gravam as mesmas linhas. Cada chamada de {@link #acquire} pega todas as chaves de uma vez ou
+ * nenhuma, então dois chunks nunca ficam segurando parte do que o outro precisa; as chaves pertencem à thread
+ * da transação (reentrantes entre chunks do mesmo arquivo) e só são liberadas depois do commit/rollback, quando
+ * as linhas gravadas já estão visíveis para quem estava esperando.
+ * <p>
+ * Sem transação ativa (uso fora do Spring) as chaves ficam com o chamador até {@link Held#close()}.
+ * Uma transação de arquivo inteiro que pega chaves em mais de um chunk ainda pode formar ciclo com outra; o
+ * tempo máximo de espera ({@code app.ingestion.lock-timeout}) desfaz o ciclo abortando um dos uploads.
+ */
+@Component
+class IngestionLocks {
+
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final Condition released = mutex.newCondition();
+    private final Map<Key, Thread> owners = new HashMap<>();
+
+    /**
+     * @param idsByTable ids a travar, por tabela; todos são tomados juntos
+     * @return as chaves efetivamente tomadas por esta chamada (sem as que a thread já tinha)
+     * @throws IngestionConflictException se as chaves não ficarem livres dentro de {@code timeout}
+     */
+    Held acquire(Map<String, ? extends Collection<Long>> idsByTable, Duration timeout) {
+        List<Key> keys = new ArrayList<>();
+        idsByTable.forEach((table, ids) -> ids.forEach(id -> keys.add(new Key(table, id))));
+        if (keys.isEmpty()) return new Held(List.of());
+
+        Thread self = Thread.currentThread();
+        long remaining = timeout.toNanos();
+        List<Key> claimed = new ArrayList<>();
+        mutex.lock();
+        try {
+            while (!available(keys, self)) {
+                if (remaining <= 0) {
+                    throw new IngestionConflictException(
+                            "Tempo de espera esgotado aguardando outro upload que grava os mesmos registros de "
+                                    + idsByTable.keySet());
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            for (Key key : keys) {
+                if (owners.putIfAbsent(key, self) == null) claimed.add(key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionConflictException("Upload interrompido aguardando registros de " + idsByTable.keySet());
+        } finally {
+            mutex.unlock();
+        }
+
+        Held held = new Held(claimed);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    held.release();
+                }
+            });
+        }
+        return held;
+    }
+
+    int size() {
+        mutex.lock();
+        try {
+            return owners.size();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    // ---------------- helpers ----------------
+
+    private boolean available(List<Key> keys, Thread self) {
+        for (Key key : keys) {
+            Thread owner = owners.get(key);
+            if (owner != null && owner != self) return false;
+        }
+        return true;
+    }
+
+    private record Key(String table, long id) {}
+
+    /**
+     * Chaves tomadas por uma chamada de {@link #acquire}. Dentro de uma transação {@link #close()} não faz nada:
+     * a liberação fica para o fim da transação.
+     */
+    final class Held implements AutoCloseable {
+
+        private final List<Key> keys;
+        private boolean releasedAlready;
+
+        private Held(List<Key> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public void close() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                release();
+            }
+        }
+
+        private void release() {
+            if (keys.isEmpty()) return;
+            mutex.lock();
+            try {
+                if (releasedAlready) return;
+                releasedAlready = true;
+                for (Key key : keys) owners.remove(key);
+                released.signalAll();
+            } finally {
+                mutex.unlock();
+            }
+        }
+    }
+}
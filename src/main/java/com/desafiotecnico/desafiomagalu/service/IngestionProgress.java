@@ -0,0 +1,67 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.RejectedLineDto;
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de uma ingestão em andamento, atualizados pela thread que processa o arquivo e lidos
+ * concorrentemente (ex.: pelo endpoint de status de jobs).
+ */
+public class IngestionProgress {
+
+    private final AtomicLong linesParsed = new AtomicLong();
+    private final AtomicLong rowsPersisted = new AtomicLong();
+    private final AtomicLong ordersSkipped = new AtomicLong();
+    private final List<RejectedLineDto> rejectedLines = new ArrayList<>();
+
+    void lineParsed() {
+        linesParsed.incrementAndGet();
+    }
+
+    void rowsPersisted(long rows) {
+        rowsPersisted.addAndGet(rows);
+    }
+
+    void ordersSkipped(long orders) {
+        ordersSkipped.addAndGet(orders);
+    }
+
+    void lineRejected(long lineNumber, BadFileFormatException error) {
+        RejectedLineDto rejected = new RejectedLineDto(lineNumber, error.getOffset() < 0 ? null : error.getOffset(),
+                error.getField(), error.getMessage());
+        synchronized (rejectedLines) {
+            rejectedLines.add(rejected);
+        }
+    }
+
+    public long getLinesParsed() {
+        return linesParsed.get();
+    }
+
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    public long getOrdersSkipped() {
+        return ordersSkipped.get();
+    }
+
+    public int getLinesRejected() {
+        synchronized (rejectedLines) {
+            return rejectedLines.size();
+        }
+    }
+
+    /**
+     * Cópia do relatório de linhas rejeitadas até agora, na ordem do arquivo.
+     */
+    public List<RejectedLineDto> getRejectedLines() {
+        synchronized (rejectedLines) {
+            return List.copyOf(rejectedLines);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import java.util.Arrays;
+
+/**
+ * Mapa {@code long -> int} de endereçamento aberto (sondagem linear) usado pela {@link OrderAggregation} para
+ * achar a posição de um id nas colunas, sem boxing de chaves nem um objeto de entrada por id.
+ */
+final class LongIndexMap {
+
+    static final int MISSING = -1;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    /** Posição + 1; {@code 0} marca slot livre, então qualquer {@code long} pode ser chave. */
+    private int[] slots;
+    private int size;
+    private int resizeAt;
+
+    LongIndexMap(int expected) {
+        allocate(tableSizeFor(expected));
+    }
+
+    int get(long key) {
+        int mask = slots.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) return MISSING;
+            if (keys[i] == key) return slot - 1;
+        }
+    }
+
+    /**
+     * Associa {@code key} a {@code index} se ainda não houver valor; devolve o valor existente ou {@link #MISSING}.
+     */
+    int putIfAbsent(long key, int index) {
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return slots[i] - 1;
+        }
+        keys[i] = key;
+        slots[i] = index + 1;
+        if (++size > resizeAt) rehash();
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    long footprintBytes() {
+        return (long) keys.length * Long.BYTES + (long) slots.length * Integer.BYTES;
+    }
+
+    // ---------------- helpers ----------------
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        allocate(oldSlots.length << 1);
+        int mask = slots.length - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] == 0) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        slots = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(16, capacity);
+    }
+
+    /** Finalizador do MurmurHash3: ids sequenciais não caem em slots vizinhos. */
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
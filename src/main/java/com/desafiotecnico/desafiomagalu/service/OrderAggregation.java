@@ -0,0 +1,222 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import com.desafiotecnico.desafiomagalu.parser.LegacyRecord;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Agrupa linhas parseadas em usuários → pedidos → produtos, preservando a ordem em que aparecem no arquivo.
+ * <p>
+ * Os dados ficam em colunas de primitivos, endereçadas por posição: usuários, pedidos e linhas recebem uma
+ * posição na ordem de primeira ocorrência, {@link LongIndexMap} traduz id → posição, e os pedidos de um
+ * usuário e as linhas de um pedido são listas encadeadas por posição ({@code first*}/{@code next*}, {@code -1}
+ * encerra). Valores ficam em centavos e datas em epoch-day. Para percorrer:
+ * <pre>{@code
+ * for (int u = 0; u < agg.userCount(); u++)
+ *     for (int o = agg.firstOrder(u); o != -1; o = agg.nextOrder(o))
+ *         for (int l = agg.firstLine(o); l != -1; l = agg.nextLine(l)) ...
+ * }</pre>
+ * Um pedido pertence ao primeiro usuário com que apareceu. A estimativa de memória permite que o modo
+ * streaming limite o tamanho de cada chunk.
+ */
+class OrderAggregation {
+
+    static final int END = -1;
+
+    private static final int INITIAL_CAPACITY = 1_024;
+
+    // colunas + ~2 slots de índice (12 bytes cada) por entrada; o usuário inclui o cabeçalho da String do nome
+    private static final long USER_BYTES = 8 + 4 + 2 * 4 + 24 + 64;
+    private static final long ORDER_BYTES = 2 * 8 + 4 * 4 + 24;
+    private static final long LINE_BYTES = 2 * 8 + 4;
+
+    private final LongIndexMap userIndex = new LongIndexMap(INITIAL_CAPACITY);
+    private long[] userIds = new long[INITIAL_CAPACITY];
+    private String[] userNames = new String[INITIAL_CAPACITY];
+    private int[] userFirstOrder = new int[INITIAL_CAPACITY];
+    private int[] userLastOrder = new int[INITIAL_CAPACITY];
+    private int userCount;
+    private long nameChars;
+
+    private final LongIndexMap orderIndex = new LongIndexMap(INITIAL_CAPACITY);
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    private int[] orderDays = new int[INITIAL_CAPACITY];
+    private long[] orderTotals = new long[INITIAL_CAPACITY];
+    private int[] orderNext = new int[INITIAL_CAPACITY];
+    private int[] orderFirstLine = new int[INITIAL_CAPACITY];
+    private int[] orderLastLine = new int[INITIAL_CAPACITY];
+    private int orderCount;
+
+    private long[] lineProducts = new long[INITIAL_CAPACITY];
+    private long[] lineValues = new long[INITIAL_CAPACITY];
+    private int[] lineNext = new int[INITIAL_CAPACITY];
+    private int lineCount;
+
+    void add(ParsedLine parsed) {
+        add(parsed.getUserId(), parsed.getUserName(), parsed.getOrderId(), parsed.getProductId(),
+                parsed.getValueCents(), (int) parsed.getDate().toEpochDay());
+    }
+
+    /**
+     * Caminho do parser de bytes: nenhum objeto é criado por linha, e o nome só é decodificado para usuários novos.
+     */
+    void add(LegacyRecord record) {
+        int u = userIndex.get(record.getUserId());
+        if (u == LongIndexMap.MISSING) u = addUser(record.getUserId(), record.getUserName());
+        addLine(u, record.getOrderId(), record.getProductId(), record.getValueCents(), record.getEpochDay());
+    }
+
+    void add(long userId, String userName, long orderId, long productId, long valueCents, int epochDay) {
+        int u = userIndex.get(userId);
+        if (u == LongIndexMap.MISSING) u = addUser(userId, userName);
+        addLine(u, orderId, productId, valueCents, epochDay);
+    }
+
+    /**
+     * Anexa uma agregação parcial que cobre linhas posteriores às desta, mantendo a ordem de primeira
+     * ocorrência de usuários, pedidos e produtos exatamente como na leitura sequencial.
+     */
+    void merge(OrderAggregation later) {
+        for (int lu = 0; lu < later.userCount; lu++) {
+            int u = userIndex.get(later.userIds[lu]);
+            if (u == LongIndexMap.MISSING) u = addUser(later.userIds[lu], later.userNames[lu]);
+
+            for (int lo = later.userFirstOrder[lu]; lo != END; lo = later.orderNext[lo]) {
+                int o = orderFor(u, later.orderIds[lo], later.orderDays[lo]);
+                for (int ll = later.orderFirstLine[lo]; ll != END; ll = later.lineNext[ll]) {
+                    appendLine(o, later.lineProducts[ll], later.lineValues[ll]);
+                }
+            }
+        }
+    }
+
+    // ---------------- leitura ----------------
+
+    int userCount() { return userCount; }
+    long userId(int u) { return userIds[u]; }
+    String userName(int u) { return userNames[u]; }
+    int firstOrder(int u) { return userFirstOrder[u]; }
+
+    int orderCount() { return orderCount; }
+    int nextOrder(int o) { return orderNext[o]; }
+    long orderId(int o) { return orderIds[o]; }
+    int orderEpochDay(int o) { return orderDays[o]; }
+    LocalDate orderDate(int o) { return LocalDate.ofEpochDay(orderDays[o]); }
+    long orderTotalCents(int o) { return orderTotals[o]; }
+    int firstLine(int o) { return orderFirstLine[o]; }
+
+    int nextLine(int l) { return lineNext[l]; }
+    long lineProductId(int l) { return lineProducts[l]; }
+    long lineValueCents(int l) { return lineValues[l]; }
+
+    long lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Bytes ocupados pelas entradas atuais (colunas + slots dos índices + nomes), sem contar a folga de
+     * capacidade, que é reaproveitada entre chunks.
+     */
+    long estimatedBytes() {
+        return userCount * USER_BYTES + 2 * nameChars + orderCount * ORDER_BYTES + lineCount * LINE_BYTES;
+    }
+
+    boolean isEmpty() {
+        return lineCount == 0;
+    }
+
+    /**
+     * Esvazia a agregação mantendo as colunas alocadas, para reaproveitá-las no próximo chunk.
+     */
+    void clear() {
+        userIndex.clear();
+        orderIndex.clear();
+        Arrays.fill(userNames, 0, userCount, null);
+        userCount = 0;
+        orderCount = 0;
+        lineCount = 0;
+        nameChars = 0;
+    }
+
+    // ---------------- helpers ----------------
+
+    private int addUser(long userId, String name) {
+        if (userCount == userIds.length) {
+            int capacity = grow(userCount);
+            userIds = Arrays.copyOf(userIds, capacity);
+            userNames = Arrays.copyOf(userNames, capacity);
+            userFirstOrder = Arrays.copyOf(userFirstOrder, capacity);
+            userLastOrder = Arrays.copyOf(userLastOrder, capacity);
+        }
+        int u = userCount++;
+        userIds[u] = userId;
+        userNames[u] = name;
+        userFirstOrder[u] = END;
+        userLastOrder[u] = END;
+        userIndex.putIfAbsent(userId, u);
+        nameChars += name.length();
+        return u;
+    }
+
+    private void addLine(int u, long orderId, long productId, long valueCents, int epochDay) {
+        appendLine(orderFor(u, orderId, epochDay), productId, valueCents);
+    }
+
+    private int orderFor(int u, long orderId, int epochDay) {
+        int o = orderIndex.get(orderId);
+        if (o != LongIndexMap.MISSING) return o;
+
+        if (orderCount == orderIds.length) {
+            int capacity = grow(orderCount);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            orderDays = Arrays.copyOf(orderDays, capacity);
+            orderTotals = Arrays.copyOf(orderTotals, capacity);
+            orderNext = Arrays.copyOf(orderNext, capacity);
+            orderFirstLine = Arrays.copyOf(orderFirstLine, capacity);
+            orderLastLine = Arrays.copyOf(orderLastLine, capacity);
+        }
+        o = orderCount++;
+        orderIds[o] = orderId;
+        orderDays[o] = epochDay;
+        orderTotals[o] = 0;
+        orderNext[o] = END;
+        orderFirstLine[o] = END;
+        orderLastLine[o] = END;
+        orderIndex.putIfAbsent(orderId, o);
+
+        if (userLastOrder[u] == END) {
+            userFirstOrder[u] = o;
+        } else {
+            orderNext[userLastOrder[u]] = o;
+        }
+        userLastOrder[u] = o;
+        return o;
+    }
+
+    private void appendLine(int o, long productId, long valueCents) {
+        if (lineCount == lineProducts.length) {
+            int capacity = grow(lineCount);
+            lineProducts = Arrays.copyOf(lineProducts, capacity);
+            lineValues = Arrays.copyOf(lineValues, capacity);
+            lineNext = Arrays.copyOf(lineNext, capacity);
+        }
+        int l = lineCount++;
+        lineProducts[l] = productId;
+        lineValues[l] = valueCents;
+        lineNext[l] = END;
+
+        if (orderLastLine[o] == END) {
+            orderFirstLine[o] = l;
+        } else {
+            lineNext[orderLastLine[o]] = l;
+        }
+        orderLastLine[o] = l;
+        orderTotals[o] += valueCents;
+    }
+
+    private static int grow(int size) {
+        return size + Math.max(INITIAL_CAPACITY, size >> 1);
+    }
+}
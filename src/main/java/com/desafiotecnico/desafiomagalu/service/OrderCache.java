@@ -0,0 +1,237 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.QueryProperties;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto.OrderDto;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Cache de leitura dos pedidos já montados ({@link OrderDto} + usuário), indexado por {@code orderId} e por dia
+ * ({@code epochDay -> order ids}). Consultas por intervalo só são respondidas da memória quando o intervalo inteiro
+ * já foi carregado do banco e nenhum pedido dele foi descartado ou alterado desde então.
+ * <p>
+ * As gravações da ingestão invalidam os pedidos, usuários e dias afetados. Uma carga iniciada antes de uma
+ * invalidação não é guardada, para não reintroduzir dados anteriores ao commit.
+ */
+@Component
+class OrderCache {
+
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final int maxOrders;
+
+    private final LinkedHashMap<Long, CachedOrder> orders;
+    private final NavigableMap<Long, Set<Long>> byDay = new TreeMap<>();
+    /** Intervalos de dias (início -> fim, inclusivos, sem sobreposição) carregados por completo. */
+    private final NavigableMap<Long, Long> loadedRanges = new TreeMap<>();
+    private long generation;
+
+    OrderCache(OrderProjectionRepository orderProjectionRepository, QueryProperties queryProperties) {
+        this.orderProjectionRepository = orderProjectionRepository;
+        this.maxOrders = Math.max(1, queryProperties.getCache().getMaxOrders());
+        this.orders = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedOrder> eldest) {
+                if (size() <= maxOrders) return false;
+                unindex(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    List<UserResponseDto> findOrder(long orderId) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedOrder cached = orders.get(orderId);
+            if (cached != null) return toUsers(List.of(cached));
+            loadGeneration = generation;
+        }
+
+        List<CachedOrder> loaded = load(new OrderFilter(orderId, null, null));
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                loaded.forEach(this::put);
+            }
+        }
+        return toUsers(loaded);
+    }
+
+    List<UserResponseDto> findRange(LocalDate start, LocalDate end) {
+        long from = start.toEpochDay();
+        long to = end.toEpochDay();
+        if (from > to) return new ArrayList<>();
+
+        long loadGeneration;
+        synchronized (this) {
+            if (isLoaded(from, to)) {
+                List<CachedOrder> hits = new ArrayList<>();
+                for (Set<Long> ids : byDay.subMap(from, true, to, true).values()) {
+                    for (Long id : ids) hits.add(orders.get(id));
+                }
+                return toUsers(hits);
+            }
+            loadGeneration = generation;
+        }
+
+        List<CachedOrder> loaded = load(new OrderFilter(null, start, end));
+        synchronized (this) {
+            if (loadGeneration == generation && loaded.size() <= maxOrders) {
+                loaded.forEach(this::put);
+                markLoaded(from, to);
+            }
+        }
+        return toUsers(loaded);
+    }
+
+    /**
+     * Descarta pedidos, usuários (cujo nome pode ter mudado) e dias tocados por uma gravação. Dentro de uma
+     * transação a invalidação é repetida após o commit, já que leituras concorrentes ainda viam os dados antigos.
+     */
+    void invalidate(Collection<Long> orderIds, Collection<Long> userIds, Collection<LocalDate> dates) {
+        evict(orderIds, userIds, dates);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> orderIdsCopy = List.copyOf(orderIds);
+            List<Long> userIdsCopy = List.copyOf(userIds);
+            List<LocalDate> datesCopy = dates.stream().filter(Objects::nonNull).toList();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(orderIdsCopy, userIdsCopy, datesCopy);
+                }
+            });
+        }
+    }
+
+    /**
+     * Muda a cada gravação da ingestão, restauração de snapshot ou {@link #clear()}, inclusive depois do commit;
+     * serve de versão dos dados para quem guarda respostas já montadas ({@link QueryResponseCache}).
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized int size() {
+        return orders.size();
+    }
+
+    synchronized void clear() {
+        generation++;
+        orders.clear();
+        byDay.clear();
+        loadedRanges.clear();
+    }
+
+    // ---------------- helpers ----------------
+
+    private synchronized void evict(Collection<Long> orderIds, Collection<Long> userIds, Collection<LocalDate> dates) {
+        generation++;
+        for (Long orderId : orderIds) {
+            CachedOrder removed = orders.remove(orderId);
+            if (removed != null) unindex(removed);
+        }
+        if (!userIds.isEmpty()) {
+            Set<Long> users = new HashSet<>(userIds);
+            Iterator<CachedOrder> it = orders.values().iterator();
+            while (it.hasNext()) {
+                CachedOrder cached = it.next();
+                if (users.contains(cached.userId())) {
+                    it.remove();
+                    unindex(cached);
+                }
+            }
+        }
+        for (LocalDate date : dates) {
+            if (date != null) unmarkLoaded(date.toEpochDay());
+        }
+    }
+
+    private List<CachedOrder> load(OrderFilter filter) {
+        OrderRowFolder folder = new OrderRowFolder();
+        orderProjectionRepository.forEachRow(filter, folder);
+
+        List<CachedOrder> loaded = new ArrayList<>();
+        for (UserResponseDto user : folder.users()) {
+            for (OrderDto order : user.getOrders()) {
+                Long epochDay = order.getDate() == null ? null : LocalDate.parse(order.getDate()).toEpochDay();
+                loaded.add(new CachedOrder(user.getUserId(), user.getName(), epochDay, order));
+            }
+        }
+        return loaded;
+    }
+
+    private void put(CachedOrder cached) {
+        CachedOrder previous = orders.put(cached.order().getOrderId(), cached);
+        if (previous != null) unindex(previous);
+        if (cached.epochDay() != null) {
+            byDay.computeIfAbsent(cached.epochDay(), d -> new HashSet<>()).add(cached.order().getOrderId());
+        }
+    }
+
+    private void unindex(CachedOrder cached) {
+        if (cached.epochDay() == null) return;
+        Set<Long> ids = byDay.get(cached.epochDay());
+        if (ids != null) {
+            ids.remove(cached.order().getOrderId());
+            if (ids.isEmpty()) byDay.remove(cached.epochDay());
+        }
+        // o intervalo que continha o pedido deixa de estar completo
+        unmarkLoaded(cached.epochDay());
+    }
+
+    private boolean isLoaded(long from, long to) {
+        Map.Entry<Long, Long> range = loadedRanges.floorEntry(from);
+        return range != null && range.getValue() >= to;
+    }
+
+    private void markLoaded(long from, long to) {
+        Map.Entry<Long, Long> before = loadedRanges.floorEntry(from);
+        if (before != null && before.getValue() >= from - 1) {
+            from = before.getKey();
+            to = Math.max(to, before.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = loadedRanges.ceilingEntry(from)) != null && next.getKey() <= to + 1) {
+            to = Math.max(to, next.getValue());
+            loadedRanges.remove(next.getKey());
+        }
+        loadedRanges.put(from, to);
+    }
+
+    private void unmarkLoaded(long epochDay) {
+        Map.Entry<Long, Long> range = loadedRanges.floorEntry(epochDay);
+        if (range != null && range.getValue() >= epochDay) {
+            loadedRanges.remove(range.getKey());
+        }
+    }
+
+    /**
+     * Agrupa por usuário na mesma ordem da projeção (user_id, order_id). Os {@link OrderDto} são compartilhados
+     * com o cache e não devem ser alterados por quem chama.
+     */
+    private static List<UserResponseDto> toUsers(List<CachedOrder> cached) {
+        List<CachedOrder> sorted = new ArrayList<>(cached);
+        sorted.sort(Comparator.comparing(CachedOrder::userId).thenComparing(c -> c.order().getOrderId()));
+
+        List<UserResponseDto> users = new ArrayList<>();
+        UserResponseDto current = null;
+        for (CachedOrder c : sorted) {
+            if (current == null || !current.getUserId().equals(c.userId())) {
+                current = new UserResponseDto();
+                current.setUserId(c.userId());
+                current.setName(c.name());
+                current.setOrders(new ArrayList<>());
+                users.add(current);
+            }
+            current.getOrders().add(c.order());
+        }
+        return users;
+    }
+
+    private record CachedOrder(Long userId, String name, Long epochDay, OrderDto order) {}
+}
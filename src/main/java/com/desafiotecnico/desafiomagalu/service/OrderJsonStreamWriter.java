@@ -0,0 +1,135 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository.OrderItemRow;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Escreve o resultado da consulta de pedidos direto no {@link OutputStream} à medida que as linhas chegam do
+ * banco, sem montar a lista de DTOs em memória. Como as linhas vêm ordenadas por usuário e pedido, cada
+ * usuário é fechado assim que aparece o próximo.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderJsonStreamWriter {
+
+    public enum Format { JSON, NDJSON }
+
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+
+    public void write(OrderFilter filter, Format format, OutputStream out) throws IOException {
+        Timer.Sample sample = Timer.start();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            UserWriter writer = new UserWriter(gen, format);
+            writer.begin();
+            try {
+                orderProjectionRepository.forEachRow(filter, writer::accept);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.end();
+        } finally {
+            sample.stop(metrics.serialization(format.name().toLowerCase()));
+        }
+    }
+
+    private static final class UserWriter {
+        private final JsonGenerator gen;
+        private final Format format;
+        private Long currentUser;
+        private Long currentOrder;
+
+        UserWriter(JsonGenerator gen, Format format) {
+            this.gen = gen;
+            this.format = format;
+        }
+
+        void begin() throws IOException {
+            if (format == Format.JSON) {
+                gen.writeStartArray();
+            } else {
+                gen.setRootValueSeparator(null);
+            }
+        }
+
+        void accept(OrderItemRow row) {
+            try {
+                if (currentUser == null || currentUser != row.userId()) {
+                    closeUser();
+                    openUser(row);
+                }
+                if (currentOrder == null || currentOrder != row.orderId()) {
+                    closeOrder();
+                    openOrder(row);
+                }
+                if (row.productId() != null) {
+                    gen.writeStartObject();
+                    gen.writeNumberField("product_id", row.productId());
+                    gen.writeStringField("value", Money.format(row.valueCents()));
+                    gen.writeEndObject();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void end() throws IOException {
+            closeUser();
+            if (format == Format.JSON) gen.writeEndArray();
+            gen.flush();
+        }
+
+        private void openUser(OrderItemRow row) throws IOException {
+            currentUser = row.userId();
+            gen.writeStartObject();
+            gen.writeNumberField("user_id", row.userId());
+            gen.writeStringField("name", row.name());
+            gen.writeArrayFieldStart("orders");
+        }
+
+        private void closeUser() throws IOException {
+            if (currentUser == null) return;
+            closeOrder();
+            gen.writeEndArray();
+            gen.writeEndObject();
+            if (format == Format.NDJSON) {
+                gen.writeRaw('\n');
+                gen.flush();
+            }
+            currentUser = null;
+        }
+
+        private void openOrder(OrderItemRow row) throws IOException {
+            currentOrder = row.orderId();
+            gen.writeStartObject();
+            gen.writeNumberField("order_id", row.orderId());
+            gen.writeStringField("total", Money.format(row.totalCents()));
+            if (row.date() == null) {
+                gen.writeNullField("date");
+            } else {
+                gen.writeStringField("date", row.date().toString());
+            }
+            gen.writeArrayFieldStart("products");
+        }
+
+        private void closeOrder() throws IOException {
+            if (currentOrder == null) return;
+            gen.writeEndArray();
+            gen.writeEndObject();
+            currentOrder = null;
+        }
+    }
+}
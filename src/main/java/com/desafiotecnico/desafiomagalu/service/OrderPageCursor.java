@@ -0,0 +1,33 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Cursor opaco da paginação por keyset: a última chave {@code (date, order_id)} devolvida na página anterior.
+ * A data só é usada quando a consulta é por intervalo de datas (ordenada por data e id).
+ */
+record OrderPageCursor(LocalDate date, long orderId) {
+
+    String encode() {
+        String raw = (date == null ? "" : date.toString()) + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static OrderPageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int sep = raw.indexOf('|');
+            if (sep < 0) throw new InvalidCursorException("Cursor inválido: '" + cursor + "'");
+            LocalDate date = sep == 0 ? null : LocalDate.parse(raw.substring(0, sep));
+            return new OrderPageCursor(date, Long.parseLong(raw.substring(sep + 1)));
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Cursor inválido: '" + cursor + "'", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto.OrderDto;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto.ProductDto;
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository.OrderItemRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Monta os DTOs de resposta a partir das linhas planas da projeção. As linhas chegam ordenadas por usuário e
+ * pedido, então basta comparar com o último usuário/pedido aberto.
+ */
+final class OrderRowFolder implements Consumer<OrderItemRow> {
+
+    private final List<UserResponseDto> users = new ArrayList<>();
+    private UserResponseDto currentUser;
+    private OrderDto currentOrder;
+
+    @Override
+    public void accept(OrderItemRow row) {
+        if (currentUser == null || currentUser.getUserId() != row.userId()) {
+            currentUser = new UserResponseDto();
+            currentUser.setUserId(row.userId());
+            currentUser.setName(row.name());
+            currentUser.setOrders(new ArrayList<>());
+            users.add(currentUser);
+            currentOrder = null;
+        }
+        if (currentOrder == null || currentOrder.getOrderId() != row.orderId()) {
+            currentOrder = new OrderDto();
+            currentOrder.setOrderId(row.orderId());
+            currentOrder.setDate(row.date() == null ? null : row.date().toString());
+            currentOrder.setTotal(Money.format(row.totalCents()));
+            currentOrder.setProducts(new ArrayList<>());
+            currentUser.getOrders().add(currentOrder);
+        }
+        if (row.productId() != null) {
+            ProductDto product = new ProductDto();
+            product.setProductId(row.productId());
+            product.setValue(Money.format(row.valueCents()));
+            currentOrder.getProducts().add(product);
+        }
+    }
+
+    List<UserResponseDto> users() {
+        return users;
+    }
+}
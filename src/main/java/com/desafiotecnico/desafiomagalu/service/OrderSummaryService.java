@@ -0,0 +1,94 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.OrderSummaryDto;
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.Grouping;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.SummaryRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Agregações por intervalo respondidas a partir de {@code daily_user_summary}, sem ler pedidos nem itens: o custo
+ * depende de quantos pares (usuário, dia) existem no intervalo, não de quantos itens.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderSummaryService {
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final PipelineMetrics metrics;
+
+    /**
+     * @param groupBy {@code user}, {@code day} ou {@code user_day}; outros valores são tratados como {@code user}
+     */
+    @Transactional(readOnly = true)
+    public OrderSummaryDto summarize(Optional<LocalDate> optStart, Optional<LocalDate> optEnd, String groupBy) {
+        Grouping grouping = grouping(groupBy);
+        LocalDate start = optStart.isPresent() && optEnd.isPresent() ? optStart.get() : null;
+        LocalDate end = start == null ? null : optEnd.get();
+
+        List<SummaryRow> rows = metrics.query("summary",
+                () -> orderSummaryRepository.findRange(start, end, grouping));
+
+        OrderSummaryDto dto = new OrderSummaryDto();
+        dto.setStartDate(start == null ? null : start.toString());
+        dto.setEndDate(end == null ? null : end.toString());
+        dto.setGroupBy(grouping.name().toLowerCase());
+
+        long revenueCents = 0;
+        List<OrderSummaryDto.RowDto> rowDtos = new ArrayList<>(rows.size());
+        for (SummaryRow row : rows) {
+            dto.setOrders(dto.getOrders() + row.orders());
+            dto.setItems(dto.getItems() + row.items());
+            revenueCents += row.revenueCents();
+
+            OrderSummaryDto.RowDto rowDto = new OrderSummaryDto.RowDto();
+            rowDto.setUserId(row.userId());
+            rowDto.setDate(row.date() == null ? null : row.date().toString());
+            rowDto.setOrders(row.orders());
+            rowDto.setItems(row.items());
+            rowDto.setRevenue(Money.format(row.revenueCents()));
+            rowDtos.add(rowDto);
+        }
+        dto.setRevenue(Money.format(revenueCents));
+        dto.setRows(rowDtos);
+        return dto;
+    }
+
+    /**
+     * Bancos gravados antes do resumo existir (profile {@code prod}) começam com a tabela vazia: recalcula a
+     * partir dos pedidos na subida.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (orderSummaryRepository.isEmpty() && orderProjectionRepository.findLatestDate().isPresent()) {
+            int rows = orderSummaryRepository.rebuild();
+            log.info("Resumo diário por usuário recalculado a partir dos pedidos: {} linhas", rows);
+        }
+    }
+
+    // ---------------- helpers ----------------
+
+    private static Grouping grouping(String groupBy) {
+        if (groupBy == null) return Grouping.USER;
+        return switch (groupBy.toLowerCase()) {
+            case "day" -> Grouping.DAY;
+            case "user_day" -> Grouping.USER_DAY;
+            default -> Grouping.USER;
+        };
+    }
+}
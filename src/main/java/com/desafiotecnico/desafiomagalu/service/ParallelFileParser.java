@@ -0,0 +1,139 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.parser.FixedWidthRecordParser;
+import com.desafiotecnico.desafiomagalu.parser.LegacyRecordReader;
+import com.desafiotecnico.desafiomagalu.parser.RejectedLineHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parse multi-core de um arquivo já disponível como {@link ByteBuffer}: o conteúdo é dividido em faixas
+ * alinhadas por linha, cada faixa gera uma {@link OrderAggregation} parcial e as parciais são mescladas na
+ * ordem original, produzindo o mesmo resultado da leitura sequencial. Linhas rejeitadas são guardadas por
+ * faixa e repassadas ao {@link RejectedLineHandler} na mesma ordem, já com o número da linha no arquivo.
+ */
+@Component
+@Slf4j
+class ParallelFileParser {
+
+    private static final int SPLITS_PER_THREAD = 4;
+    private static final int MIN_SPLIT_BYTES = 64 * 1024;
+
+    private final FixedWidthRecordParser recordParser;
+    private final IngestionProperties properties;
+    private final ForkJoinPool pool;
+
+    ParallelFileParser(FixedWidthRecordParser recordParser, IngestionProperties properties) {
+        this.recordParser = recordParser;
+        this.properties = properties;
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    OrderAggregation parse(ByteBuffer data) {
+        return parse(data, 0, data.limit());
+    }
+
+    OrderAggregation parse(ByteBuffer data, int from, int to) {
+        return parse(data, from, to, 0, RejectedLineHandler.STRICT).aggregation();
+    }
+
+    /**
+     * @param linesBefore linhas do arquivo antes de {@code from}, para numerar as linhas rejeitadas
+     */
+    Result parse(ByteBuffer data, int from, int to, long linesBefore, RejectedLineHandler rejectedLines) {
+        List<int[]> ranges = split(data, from, to);
+        // cada faixa guarda no máximo o limite + 1 rejeições: é o suficiente para o handler estourar o limite
+        int buffered = rejectedLines == RejectedLineHandler.STRICT ? 0 : properties.getMaxRejectedLines() + 1;
+
+        List<Callable<Partial>> tasks = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            tasks.add(() -> {
+                Partial partial = new Partial();
+                RejectedLineHandler handler = buffered == 0
+                        ? RejectedLineHandler.STRICT
+                        : (line, error) -> {
+                            if (partial.rejections.size() < buffered) partial.rejections.add(new Rejection(line, error));
+                        };
+                LegacyRecordReader reader = new LegacyRecordReader(recordParser, handler);
+                reader.read(data, range[0], range[1], partial.aggregation::add);
+                partial.lines = reader.linesRead();
+                return partial;
+            });
+        }
+
+        OrderAggregation result = new OrderAggregation();
+        long lines = linesBefore;
+        for (Future<Partial> f : pool.invokeAll(tasks)) {
+            Partial partial = join(f);
+            for (Rejection r : partial.rejections) {
+                rejectedLines.reject(lines + r.line(), r.error());
+            }
+            result.merge(partial.aggregation);
+            lines += partial.lines;
+        }
+        log.debug("Parse paralelo: {} faixas, {} linhas", ranges.size(), result.lineCount());
+        return new Result(result, lines - linesBefore);
+    }
+
+    private List<int[]> split(ByteBuffer data, int from, int to) {
+        int length = to - from;
+        int splits = Math.max(1, Math.min(pool.getParallelism() * SPLITS_PER_THREAD, length / MIN_SPLIT_BYTES));
+
+        List<int[]> ranges = new ArrayList<>(splits);
+        int start = from;
+        for (int i = 1; i <= splits && start < to; i++) {
+            int end = i == splits
+                    ? to
+                    : LegacyRecordReader.nextLineStart(data, Math.max(start, from + (int) ((long) length * i / splits)), to);
+            if (end > start) {
+                ranges.add(new int[]{start, end});
+            }
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static Partial join(Future<Partial> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parse paralelo interrompido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BadFileFormatException bad) throw bad;
+            throw new RuntimeException("Erro no parse paralelo: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @param lines linhas lidas da faixa, incluindo em branco e rejeitadas
+     */
+    record Result(OrderAggregation aggregation, long lines) {}
+
+    private record Rejection(long line, BadFileFormatException error) {}
+
+    private static final class Partial {
+        final OrderAggregation aggregation = new OrderAggregation();
+        final List<Rejection> rejections = new ArrayList<>();
+        long lines;
+    }
+}
@@ -0,0 +1,122 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Métricas do pipeline de upload e de consulta, expostas pelo Actuator ({@code /actuator/prometheus}).
+ * <ul>
+ *   <li>{@code ingestion.stage} (timer, tag {@code stage}): {@code parse} (leitura + parse + agregação, que
+ *   acontecem intercalados), {@code persist_lock} (espera por outro upload com as mesmas linhas),
+ *   {@code persist_lookup}, {@code persist_users}, {@code persist_products},
+ *   {@code persist_orders}, {@code persist_items}, {@code persist_summary} (resumo diário por usuário) e
+ *   {@code build_response};</li>
+ *   <li>{@code ingestion.lines}, {@code ingestion.lines.rejected}, {@code ingestion.bytes} e
+ *   {@code ingestion.rows} (tag {@code table}) como contadores; {@code ingestion.uploads} por modo e resultado
+ *   ({@code success}, {@code duplicate}, {@code failure}); {@code ingestion.orders.skipped};</li>
+ *   <li>{@code ingestion.throughput}: linhas/s do último upload concluído;</li>
+ *   <li>{@code orders.query} (timer com histograma, tag {@code filter}, incluindo {@code summary}) e {@code orders.serialize} (tag
+ *   {@code format}) do lado da consulta; {@code orders.response.cache} (tag {@code outcome}: {@code hit},
+ *   {@code miss}) para as respostas já serializadas.</li>
+ * </ul>
+ */
+@Component
+class PipelineMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter lines;
+    private final Counter rejectedLines;
+    private final Counter bytes;
+    private final Counter skippedOrders;
+    private final AtomicLong linesPerSecond = new AtomicLong();
+
+    PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.lines = Counter.builder("ingestion.lines").description("Linhas lidas dos uploads").register(registry);
+        this.rejectedLines = Counter.builder("ingestion.lines.rejected").description("Linhas rejeitadas").register(registry);
+        this.bytes = Counter.builder("ingestion.bytes").baseUnit("bytes").description("Bytes recebidos").register(registry);
+        this.skippedOrders = Counter.builder("ingestion.orders.skipped")
+                .description("Pedidos não regravados por estarem iguais ao ledger")
+                .register(registry);
+        Gauge.builder("ingestion.throughput", linesPerSecond, AtomicLong::get)
+                .baseUnit("lines/s")
+                .description("Linhas por segundo do último upload concluído")
+                .register(registry);
+    }
+
+    <T> T stage(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            stageTime(stage, System.nanoTime() - start);
+        }
+    }
+
+    void stage(String stage, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            stageTime(stage, System.nanoTime() - start);
+        }
+    }
+
+    void stageTime(String stage, long nanos) {
+        Timer.builder("ingestion.stage").tag("stage", stage).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void rowsWritten(String table, long rows) {
+        if (rows > 0) {
+            Counter.builder("ingestion.rows").tag("table", table).register(registry).increment(rows);
+        }
+    }
+
+    void rejectedLines(long count) {
+        rejectedLines.increment(count);
+    }
+
+    void uploadFinished(String mode, long lineCount, long byteCount, long nanos) {
+        lines.increment(lineCount);
+        bytes.increment(byteCount);
+        if (nanos > 0) {
+            linesPerSecond.set(lineCount * 1_000_000_000L / nanos);
+        }
+        uploads(mode, "success").increment();
+    }
+
+    void ordersSkipped(long count) {
+        skippedOrders.increment(count);
+    }
+
+    void uploadDuplicate(String mode) {
+        uploads(mode, "duplicate").increment();
+    }
+
+    void uploadFailed(String mode) {
+        uploads(mode, "failure").increment();
+    }
+
+    <T> T query(String filter, Supplier<T> work) {
+        return Timer.builder("orders.query").tag("filter", filter).register(registry).record(work);
+    }
+
+    Timer serialization(String format) {
+        return Timer.builder("orders.serialize").tag("format", format).register(registry);
+    }
+
+    void responseCache(String outcome) {
+        Counter.builder("orders.response.cache").tag("outcome", outcome).register(registry).increment();
+    }
+
+    private Counter uploads(String mode, String outcome) {
+        return Counter.builder("ingestion.uploads").tag("mode", mode).tag("outcome", outcome).register(registry);
+    }
+}
@@ -0,0 +1,175 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.QueryProperties;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respostas de {@code GET /api/v1/orders} (sem paginação) já serializadas em JSON, e compactadas com gzip quando
+ * valem a pena, por filtro ({@code orderId}, intervalo de datas ou todos). Uma consulta repetida sem gravações
+ * no meio custa uma busca no mapa: nem banco, nem montagem de DTOs, nem Jackson.
+ * <p>
+ * A versão dos dados é a geração do {@link OrderCache}, que muda a cada gravação e de novo depois do commit;
+ * uma resposta montada enquanto a versão mudava é devolvida, mas não guardada. O ETag é um hash do JSON, então
+ * uma consulta cujo resultado não mudou continua respondendo {@code 304} mesmo depois de uploads em outros dias.
+ */
+@Service
+public class QueryResponseCache {
+
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final FileProcessingService fileProcessingService;
+    private final OrderCache orderCache;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final boolean enabled;
+    private final long maxEntryBytes;
+
+    private final LinkedHashMap<OrderFilter, Rendered> entries;
+
+    QueryResponseCache(FileProcessingService fileProcessingService, OrderCache orderCache, ObjectMapper objectMapper,
+                       PipelineMetrics metrics, QueryProperties queryProperties) {
+        this.fileProcessingService = fileProcessingService;
+        this.orderCache = orderCache;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        QueryProperties.ResponseCache properties = queryProperties.getResponseCache();
+        this.enabled = properties.isEnabled();
+        this.maxEntryBytes = properties.getMaxEntrySize().toBytes();
+        int maxEntries = Math.max(1, properties.getMaxEntries());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<OrderFilter, Rendered> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Mesmo resultado de {@link FileProcessingService#query}, já serializado.
+     */
+    public Rendered find(Optional<Long> optOrderId, Optional<LocalDate> optStart, Optional<LocalDate> optEnd) {
+        OrderFilter filter = OrderFilter.of(optOrderId, optStart, optEnd);
+        long version = orderCache.generation();
+        if (enabled) {
+            synchronized (this) {
+                Rendered cached = entries.get(filter);
+                if (cached != null && cached.version == version) {
+                    metrics.responseCache("hit");
+                    return cached;
+                }
+            }
+        }
+
+        List<UserResponseDto> users = fileProcessingService.query(optOrderId, optStart, optEnd);
+        Timer.Sample sample = Timer.start();
+        Rendered rendered = render(version, users);
+        sample.stop(metrics.serialization("json"));
+
+        if (enabled) {
+            metrics.responseCache("miss");
+            synchronized (this) {
+                if (version == orderCache.generation() && rendered.json.length <= maxEntryBytes) {
+                    entries.put(filter, rendered);
+                }
+            }
+        }
+        return rendered;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // ---------------- helpers ----------------
+
+    private Rendered render(long version, List<UserResponseDto> users) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(users);
+            byte[] gzip = null;
+            if (json.length >= GZIP_MIN_BYTES) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+                try (OutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(json);
+                }
+                gzip = bytes.toByteArray();
+            }
+            return new Rendered(version, etag(json), json, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * JSON pronto para a resposta. {@link #gzip()} é {@code null} em respostas pequenas, que não compensam a
+     * compressão. Os arrays são compartilhados entre requisições e não devem ser alterados.
+     */
+    public static final class Rendered {
+
+        private final long version;
+        private final String etag;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Rendered(long version, String etag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.etag = etag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        /**
+         * ETag forte da representação; a versão gzip tem um ETag próprio, derivado do mesmo hash.
+         */
+        public String etag(boolean gzipped) {
+            return gzipped ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        public byte[] gzip() {
+            return gzip;
+        }
+
+        /**
+         * @param ifNoneMatch valor do header {@code If-None-Match}, ou {@code null}
+         * @return se o cliente já tem esta resposta, em qualquer uma das codificações
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(etag(false)) || tag.equals(etag(true)));
+        }
+    }
+}
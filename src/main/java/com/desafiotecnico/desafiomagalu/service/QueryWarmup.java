@@ -0,0 +1,55 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.QueryProperties;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Aquecimento na subida ({@code app.query.warmup.enabled}): com o banco em arquivo os dados sobrevivem ao
+ * restart, mas o cache de páginas do H2 e o {@link OrderCache} começam vazios. Atualiza as estatísticas, percorre
+ * o índice de datas dos últimos {@code app.query.warmup.days} dias e, com o cache ligado, carrega esses pedidos.
+ * Uma falha aqui só é registrada: a aplicação segue atendendo, apenas sem o aquecimento.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class QueryWarmup {
+
+    private final OrderProjectionRepository orderProjectionRepository;
+    private final OrderCache orderCache;
+    private final QueryProperties queryProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        if (queryProperties.getWarmup().isEnabled()) {
+            warmUp();
+        }
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        try {
+            Optional<LocalDate> latest = orderProjectionRepository.findLatestDate();
+            if (latest.isEmpty()) {
+                log.info("Aquecimento ignorado: nenhum pedido gravado");
+                return;
+            }
+            LocalDate from = latest.get().minusDays(Math.max(1, queryProperties.getWarmup().getDays()) - 1L);
+            long rows = orderProjectionRepository.warmUp(from);
+            if (queryProperties.getCache().isEnabled()) {
+                orderCache.findRange(from, latest.get());
+            }
+            log.info("Aquecimento concluído em {} ms: {} pedidos desde {}, {} no cache",
+                    (System.nanoTime() - start) / 1_000_000, rows, from, orderCache.size());
+        } catch (RuntimeException e) {
+            log.warn("Falha no aquecimento das consultas; seguindo sem ele", e);
+        }
+    }
+}
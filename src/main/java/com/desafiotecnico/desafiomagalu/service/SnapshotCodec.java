@@ -0,0 +1,187 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.InvalidSnapshotException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Primitivas do formato de snapshot: inteiros em varint (LEB128), com zigzag para valores e deltas que podem
+ * ser negativos, longs de largura fixa e blobs com prefixo de tamanho. Leitura e escrita passam por um
+ * {@link ByteBuffer} de tamanho fixo sobre um canal NIO, então a memória não cresce com o snapshot.
+ */
+final class SnapshotCodec {
+
+    static final byte[] MAGIC = {'M', 'G', 'S', 'N'};
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotCodec() {
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static final class Writer {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long written;
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void header() throws IOException {
+            bytes(MAGIC, false);
+            varLong(VERSION);
+        }
+
+        void varLong(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buffer.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte) v);
+        }
+
+        void zigzagLong(long v) throws IOException {
+            varLong(zigzag(v));
+        }
+
+        void fixedLong(long v) throws IOException {
+            ensure(8);
+            buffer.putLong(v);
+        }
+
+        void bytes(byte[] value) throws IOException {
+            bytes(value, true);
+        }
+
+        /**
+         * @return total de bytes entregues ao canal
+         */
+        long finish() throws IOException {
+            drain();
+            return written;
+        }
+
+        private void bytes(byte[] value, boolean lengthPrefix) throws IOException {
+            if (lengthPrefix) varLong(value.length);
+            int offset = 0;
+            while (offset < value.length) {
+                if (!buffer.hasRemaining()) drain();
+                int n = Math.min(buffer.remaining(), value.length - offset);
+                buffer.put(value, offset, n);
+                offset += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    static final class Reader {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private long read;
+
+        Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void header() throws IOException {
+            require(MAGIC.length);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new InvalidSnapshotException("Conteúdo não é um snapshot de pedidos");
+            }
+            long version = varLong();
+            if (version != VERSION) {
+                throw new InvalidSnapshotException("Versão de snapshot não suportada: " + version);
+            }
+        }
+
+        long varLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte b = buffer.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new InvalidSnapshotException("Varint inválido no snapshot");
+        }
+
+        long zigzagLong() throws IOException {
+            return unzigzag(varLong());
+        }
+
+        int count(int max) throws IOException {
+            long n = varLong();
+            if (n < 0 || n > max) {
+                throw new InvalidSnapshotException("Contagem inválida no snapshot: " + n);
+            }
+            return (int) n;
+        }
+
+        long fixedLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        byte[] bytes(int maxLength) throws IOException {
+            byte[] value = new byte[count(maxLength)];
+            int offset = 0;
+            while (offset < value.length) {
+                require(1);
+                int n = Math.min(buffer.remaining(), value.length - offset);
+                buffer.get(value, offset, n);
+                offset += n;
+            }
+            return value;
+        }
+
+        /**
+         * @return total de bytes lidos do canal
+         */
+        long bytesRead() {
+            return read;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            try {
+                while (buffer.position() < bytes) {
+                    int n = channel.read(buffer);
+                    if (n < 0) throw new InvalidSnapshotException("Snapshot truncado");
+                    read += n;
+                }
+            } finally {
+                buffer.flip();
+            }
+        }
+    }
+}
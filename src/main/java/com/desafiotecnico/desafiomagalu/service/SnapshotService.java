@@ -0,0 +1,301 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.SnapshotDto;
+import com.desafiotecnico.desafiomagalu.repository.IngestionLedgerRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderItemRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.UserRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository;
+import com.desafiotecnico.desafiomagalu.repository.SnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot binário colunar de usuários, produtos, pedidos, itens e hashes de pedidos, para levar a base de uma
+ * instância para outra (ou fazer backup do H2 em memória) sem reenviar os arquivos legados.
+ * <p>
+ * Formato: {@code "MGSN"}, versão (varint) e uma seção por tabela na ordem das chaves estrangeiras. Cada seção é
+ * uma sequência de blocos de até {@value #BLOCK_ROWS} linhas terminada por um bloco vazio; dentro do bloco cada
+ * coluna vem inteira antes da próxima:
+ * <ul>
+ *   <li>ids em ordem crescente, codificados como delta em zigzag varint (sequências densas custam ~1 byte por id);</li>
+ *   <li>usuário e produto de pedidos/itens como delta em zigzag, datas como delta do epoch-day (0 = sem data);</li>
+ *   <li>valores em centavos como zigzag varint; hashes de pedido como 8 bytes fixos;</li>
+ *   <li>nomes de usuário por dicionário do bloco (nomes distintos em UTF-8 e um índice por linha).</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotService {
+
+    static final int BLOCK_ROWS = 8_192;
+
+    private static final int MAX_NAME_BYTES = 64 * 1024;
+
+    private final SnapshotRepository snapshotRepository;
+    private final OrderBulkRepository orderBulkRepository;
+    private final IngestionLedgerRepository ingestionLedgerRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderCache orderCache;
+
+    /**
+     * Escreve o snapshot no canal. A leitura das tabelas roda em uma única transação serializável, então
+     * uploads concorrentes não deixam itens apontando para pedidos fora do snapshot.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.SERIALIZABLE)
+    public SnapshotDto export(WritableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        SnapshotCodec.Writer out = new SnapshotCodec.Writer(channel);
+        SnapshotDto dto = new SnapshotDto();
+
+        out.header();
+        dto.setUsers(writeSection(out, snapshotRepository::forEachUser, SnapshotService::writeUsers));
+        dto.setProducts(writeSection(out, c -> snapshotRepository.forEachProduct(c::accept), SnapshotService::writeProducts));
+        dto.setOrders(writeSection(out, snapshotRepository::forEachOrder, SnapshotService::writeOrders));
+        dto.setItems(writeSection(out, snapshotRepository::forEachOrderItem, SnapshotService::writeItems));
+        writeSection(out, c -> snapshotRepository.forEachOrderFingerprint((id, hash) -> c.accept(Map.entry(id, hash))),
+                SnapshotService::writeFingerprints);
+        dto.setBytes(out.finish());
+
+        log.info("Snapshot exportado em {} ms: {} pedidos, {} itens, {} bytes",
+                (System.nanoTime() - start) / 1_000_000, dto.getOrders(), dto.getItems(), dto.getBytes());
+        return dto;
+    }
+
+    /**
+     * Substitui todo o conteúdo do banco pelo snapshot lido do canal, em uma transação: um snapshot inválido
+     * ou truncado não deixa a base pela metade. O resumo diário é recalculado e o cache de pedidos descartado.
+     */
+    @Transactional
+    public SnapshotDto restore(ReadableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        SnapshotCodec.Reader in = new SnapshotCodec.Reader(channel);
+        SnapshotDto dto = new SnapshotDto();
+
+        in.header();
+        snapshotRepository.deleteAll();
+        dto.setUsers(readSection(in, SnapshotService::readUsers, orderBulkRepository::insertUsers));
+        dto.setProducts(readSection(in, SnapshotService::readProducts, orderBulkRepository::insertProducts));
+        dto.setOrders(readSection(in, SnapshotService::readOrders, orderBulkRepository::insertOrders));
+        dto.setItems(readSection(in, SnapshotService::readItems, orderBulkRepository::insertOrderItems));
+        readSection(in, SnapshotService::readFingerprints, rows -> {
+            Map<Long, Long> fingerprints = new HashMap<>(rows.size() * 2);
+            rows.forEach(e -> fingerprints.put(e.getKey(), e.getValue()));
+            ingestionLedgerRepository.saveOrderFingerprints(fingerprints);
+        });
+        orderSummaryRepository.rebuild();
+        dto.setBytes(in.bytesRead());
+
+        orderCache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    orderCache.clear();
+                }
+            });
+        }
+
+        log.info("Snapshot importado em {} ms: {} pedidos, {} itens, {} bytes",
+                (System.nanoTime() - start) / 1_000_000, dto.getOrders(), dto.getItems(), dto.getBytes());
+        return dto;
+    }
+
+    // ---------------- helpers ----------------
+
+    @FunctionalInterface
+    private interface BlockWriter<T> {
+        void write(SnapshotCodec.Writer out, List<T> rows) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BlockReader<T> {
+        List<T> read(SnapshotCodec.Reader in, int rows) throws IOException;
+    }
+
+    /**
+     * @return linhas escritas
+     */
+    private static <T> long writeSection(SnapshotCodec.Writer out, Consumer<Consumer<T>> source,
+                                         BlockWriter<T> writer) throws IOException {
+        List<T> block = new ArrayList<>(BLOCK_ROWS);
+        long[] rows = new long[1];
+        try {
+            source.accept(row -> {
+                block.add(row);
+                if (block.size() == BLOCK_ROWS) {
+                    rows[0] += writeBlock(out, block, writer);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows[0] += writeBlock(out, block, writer);
+        out.varLong(0);
+        return rows[0];
+    }
+
+    private static <T> int writeBlock(SnapshotCodec.Writer out, List<T> block, BlockWriter<T> writer) {
+        int n = block.size();
+        if (n == 0) return 0;
+        try {
+            out.varLong(n);
+            writer.write(out, block);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        block.clear();
+        return n;
+    }
+
+    /**
+     * @return linhas lidas
+     */
+    private static <T> long readSection(SnapshotCodec.Reader in, BlockReader<T> reader, Consumer<List<T>> sink)
+            throws IOException {
+        long rows = 0;
+        for (int n = in.count(BLOCK_ROWS); n > 0; n = in.count(BLOCK_ROWS)) {
+            sink.accept(reader.read(in, n));
+            rows += n;
+        }
+        return rows;
+    }
+
+    private static void writeUsers(SnapshotCodec.Writer out, List<UserRow> rows) throws IOException {
+        long previous = 0;
+        for (UserRow row : rows) {
+            out.zigzagLong(row.userId() - previous);
+            previous = row.userId();
+        }
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (UserRow row : rows) dictionary.putIfAbsent(row.name(), dictionary.size());
+        out.varLong(dictionary.size());
+        for (String name : dictionary.keySet()) out.bytes(name.getBytes(StandardCharsets.UTF_8));
+        for (UserRow row : rows) out.varLong(dictionary.get(row.name()));
+    }
+
+    private static List<UserRow> readUsers(SnapshotCodec.Reader in, int n) throws IOException {
+        long[] ids = readDeltas(in, n);
+        String[] dictionary = new String[in.count(n)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = new String(in.bytes(MAX_NAME_BYTES), StandardCharsets.UTF_8);
+        }
+        List<UserRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new UserRow(ids[i], dictionary[in.count(dictionary.length - 1)]));
+        }
+        return rows;
+    }
+
+    private static void writeProducts(SnapshotCodec.Writer out, List<Long> rows) throws IOException {
+        long previous = 0;
+        for (long id : rows) {
+            out.zigzagLong(id - previous);
+            previous = id;
+        }
+    }
+
+    private static List<Long> readProducts(SnapshotCodec.Reader in, int n) throws IOException {
+        List<Long> rows = new ArrayList<>(n);
+        for (long id : readDeltas(in, n)) rows.add(id);
+        return rows;
+    }
+
+    private static void writeOrders(SnapshotCodec.Writer out, List<OrderRow> rows) throws IOException {
+        long previous = 0;
+        for (OrderRow row : rows) {
+            out.zigzagLong(row.orderId() - previous);
+            previous = row.orderId();
+        }
+        previous = 0;
+        for (OrderRow row : rows) {
+            out.zigzagLong(row.userId() - previous);
+            previous = row.userId();
+        }
+        previous = 0;
+        for (OrderRow row : rows) {
+            long day = row.date() == null ? 0 : row.date().toEpochDay() + 1;
+            out.zigzagLong(day - previous);
+            previous = day;
+        }
+        for (OrderRow row : rows) out.zigzagLong(row.totalCents());
+    }
+
+    private static List<OrderRow> readOrders(SnapshotCodec.Reader in, int n) throws IOException {
+        long[] ids = readDeltas(in, n);
+        long[] users = readDeltas(in, n);
+        long[] days = readDeltas(in, n);
+        List<OrderRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDate date = days[i] == 0 ? null : LocalDate.ofEpochDay(days[i] - 1);
+            rows.add(new OrderRow(ids[i], users[i], date, in.zigzagLong()));
+        }
+        return rows;
+    }
+
+    private static void writeItems(SnapshotCodec.Writer out, List<OrderItemRow> rows) throws IOException {
+        long previous = 0;
+        for (OrderItemRow row : rows) {
+            out.zigzagLong(row.orderId() - previous);
+            previous = row.orderId();
+        }
+        previous = 0;
+        for (OrderItemRow row : rows) {
+            out.zigzagLong(row.productId() - previous);
+            previous = row.productId();
+        }
+        for (OrderItemRow row : rows) out.zigzagLong(row.valueCents());
+    }
+
+    private static List<OrderItemRow> readItems(SnapshotCodec.Reader in, int n) throws IOException {
+        long[] orders = readDeltas(in, n);
+        long[] products = readDeltas(in, n);
+        List<OrderItemRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new OrderItemRow(orders[i], products[i], in.zigzagLong()));
+        }
+        return rows;
+    }
+
+    private static void writeFingerprints(SnapshotCodec.Writer out, List<Map.Entry<Long, Long>> rows) throws IOException {
+        long previous = 0;
+        for (Map.Entry<Long, Long> row : rows) {
+            out.zigzagLong(row.getKey() - previous);
+            previous = row.getKey();
+        }
+        for (Map.Entry<Long, Long> row : rows) out.fixedLong(row.getValue());
+    }
+
+    private static List<Map.Entry<Long, Long>> readFingerprints(SnapshotCodec.Reader in, int n) throws IOException {
+        long[] ids = readDeltas(in, n);
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) rows.add(Map.entry(ids[i], in.fixedLong()));
+        return rows;
+    }
+
+    private static long[] readDeltas(SnapshotCodec.Reader in, int n) throws IOException {
+        long[] values = new long[n];
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            previous += in.zigzagLong();
+            values[i] = previous;
+        }
+        return values;
+    }
+}
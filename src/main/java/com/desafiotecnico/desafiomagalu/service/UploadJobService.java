@@ -0,0 +1,164 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.dto.IngestionSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.UploadJobDto;
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.exception.JobQueueFullException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processamento assíncrono de uploads: o arquivo é copiado para disco, enfileirado em um executor limitado e
+ * processado no modo streaming; o status pode ser consultado pelo id do job enquanto ele roda. Com
+ * {@code spring.threads.virtual.enabled} os jobs rodam em virtual threads; o número de jobs simultâneos
+ * continua limitado por {@code app.ingestion.jobs.workers}, que deve ficar abaixo do pool de conexões.
+ */
+@Service
+@Slf4j
+public class UploadJobService {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final FileProcessingService fileProcessingService;
+    private final ThreadPoolExecutor executor;
+    private final int retainedJobs;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+    private final Deque<String> finishedJobs = new ConcurrentLinkedDeque<>();
+
+    public UploadJobService(FileProcessingService fileProcessingService, IngestionProperties properties,
+                            Environment environment) {
+        this.fileProcessingService = fileProcessingService;
+        IngestionProperties.Jobs config = properties.getJobs();
+        this.retainedJobs = Math.max(1, config.getRetained());
+
+        this.executor = new ThreadPoolExecutor(
+                config.getWorkers(), config.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+                threadFactory(Threading.VIRTUAL.isActive(environment)),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory threadFactory(boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name("upload-job-", 1).factory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "upload-job-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    public UploadJobDto submit(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadFileFormatException("Arquivo nulo ou vazio");
+        }
+
+        SpooledUpload upload;
+        try {
+            upload = SpooledUpload.of(file);
+        } catch (IOException e) {
+            log.error("Erro ao armazenar upload", e);
+            throw new RuntimeException("Erro ao armazenar upload: " + e.getMessage(), e);
+        }
+
+        UploadJob job = new UploadJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, upload));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            upload.delete();
+            throw new JobQueueFullException("Fila de processamento cheia, tente novamente mais tarde");
+        }
+        return toDto(job);
+    }
+
+    public Optional<UploadJobDto> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(UploadJobService::toDto);
+    }
+
+    public Optional<IngestionSummaryDto> findResult(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(job -> job.result);
+    }
+
+    private void run(UploadJob job, SpooledUpload upload) {
+        job.startedAt = Instant.now();
+        job.status = Status.RUNNING;
+        try {
+            job.result = fileProcessingService.processFileStreaming(upload, job.progress);
+            job.status = Status.COMPLETED;
+        } catch (Exception e) {
+            log.error("Erro ao processar job {}", job.id, e);
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            upload.delete();
+            retire(job);
+        }
+    }
+
+    private void retire(UploadJob job) {
+        finishedJobs.addLast(job.id);
+        while (finishedJobs.size() > retainedJobs) {
+            String oldest = finishedJobs.pollFirst();
+            if (oldest != null) jobs.remove(oldest);
+        }
+    }
+
+    private static UploadJobDto toDto(UploadJob job) {
+        UploadJobDto dto = new UploadJobDto();
+        dto.setJobId(job.id);
+        dto.setStatus(job.status.name());
+        dto.setLinesParsed(job.progress.getLinesParsed());
+        dto.setRowsPersisted(job.progress.getRowsPersisted());
+        dto.setRejectedLines(job.progress.getRejectedLines());
+        dto.setError(job.error);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setFinishedAt(job.finishedAt);
+
+        if (job.startedAt != null) {
+            Instant end = job.finishedAt != null ? job.finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(job.startedAt, end).toMillis());
+            dto.setLinesPerSecond(dto.getLinesParsed() * 1_000 / millis);
+        }
+        return dto;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class UploadJob {
+        final String id;
+        final Instant createdAt = Instant.now();
+        final IngestionProgress progress = new IngestionProgress();
+        volatile Status status = Status.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile IngestionSummaryDto result;
+        volatile String error;
+        UploadJob(String id) { this.id = id; }
+    }
+}
@@ -0,0 +1,61 @@
+-- Schema do profile prod (H2 em arquivo). Espelha as entidades JPA, que o Hibernate só valida
+-- (ddl-auto=validate); alterações nas entidades precisam vir acompanhadas de uma alteração aqui.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id BIGINT NOT NULL,
+    name    VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    product_id BIGINT NOT NULL,
+    CONSTRAINT pk_products PRIMARY KEY (product_id)
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+    order_id BIGINT NOT NULL,
+    user_id  BIGINT NOT NULL,
+    date     DATE,
+    total    NUMERIC(19, 2),
+    CONSTRAINT pk_orders PRIMARY KEY (order_id),
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+-- consultas por intervalo de datas: range scan em (date, order_id)
+CREATE INDEX IF NOT EXISTS idx_orders_date ON orders (date, order_id);
+CREATE INDEX IF NOT EXISTS idx_orders_user ON orders (user_id);
+
+-- a chave primária (order_id, product_id) já atende as buscas por order_id
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id   BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    item_value NUMERIC(19, 2) NOT NULL,
+    CONSTRAINT pk_order_items PRIMARY KEY (order_id, product_id),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (order_id),
+    CONSTRAINT fk_order_items_product FOREIGN KEY (product_id) REFERENCES products (product_id)
+);
+
+-- resumo por usuário e dia mantido pela ingestão; a chave começa pela data para ler intervalos por range scan
+CREATE TABLE IF NOT EXISTS daily_user_summary (
+    date          DATE NOT NULL,
+    user_id       BIGINT NOT NULL,
+    orders        BIGINT NOT NULL,
+    items         BIGINT NOT NULL,
+    revenue_cents BIGINT NOT NULL,
+    CONSTRAINT pk_daily_user_summary PRIMARY KEY (date, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS ingested_files (
+    file_hash   VARCHAR(64) NOT NULL,
+    size_bytes  BIGINT NOT NULL,
+    lines       BIGINT NOT NULL,
+    orders      BIGINT NOT NULL,
+    ingested_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_ingested_files PRIMARY KEY (file_hash)
+);
+
+CREATE TABLE IF NOT EXISTS order_fingerprints (
+    order_id     BIGINT NOT NULL,
+    content_hash BIGINT NOT NULL,
+    CONSTRAINT pk_order_fingerprints PRIMARY KEY (order_id)
+);
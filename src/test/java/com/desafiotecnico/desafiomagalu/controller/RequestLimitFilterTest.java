@@ -0,0 +1,76 @@
+package com.desafiotecnico.desafiomagalu.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLimitFilterTest {
+
+    @Test
+    @DisplayName("should reject with 503 while every permit is held and admit again once one is released")
+    void shouldRejectWhenSaturated() throws Exception {
+        RequestLimitFilter filter = new RequestLimitFilter(1, Duration.ofMillis(50));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<MockHttpServletResponse> slow = CompletableFuture.supplyAsync(() -> {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            try {
+                filter.doFilter(request(), response, (req, res) -> {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return response;
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request(), rejected, (req, res) -> {
+            throw new AssertionError("não deveria chegar ao controller");
+        });
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo(RequestLimitFilter.RETRY_AFTER_SECONDS);
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(request(), admitted, (req, res) -> { });
+        assertThat(admitted.getStatus()).isEqualTo(200);
+        assertThat(filter.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should hold the permit of an asynchronous response until it completes")
+    void shouldHoldPermitUntilAsyncCompletes() throws Exception {
+        RequestLimitFilter filter = new RequestLimitFilter(1, Duration.ZERO);
+        MockHttpServletRequest streaming = request();
+        streaming.setAsyncSupported(true);
+
+        filter.doFilter(streaming, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertThat(filter.availablePermits()).isZero();
+
+        streaming.getAsyncContext().complete();
+        assertThat(filter.availablePermits()).isEqualTo(1);
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/v1/orders");
+    }
+}
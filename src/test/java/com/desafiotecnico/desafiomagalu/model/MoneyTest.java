@@ -0,0 +1,54 @@
+package com.desafiotecnico.desafiomagalu.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    @DisplayName("should parse zero-padded decimals and integers into cents, rounding the third decimal HALF_UP")
+    void parse_should_produce_cents() {
+        assertThat(Money.parse("000000512.24")).isEqualTo(51224L);
+        assertThat(Money.parse("00000025624")).isEqualTo(2562400L);
+        assertThat(Money.parse("  1.5 ")).isEqualTo(150L);
+        assertThat(Money.parse("0.255")).isEqualTo(26L);
+        assertThat(Money.parse("-0.255")).isEqualTo(-26L);
+        assertThat(Money.parse("")).isZero();
+        assertThrows(NumberFormatException.class, () -> Money.parse("12,50"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+    }
+
+    @Test
+    @DisplayName("should parse a byte range exactly like the equivalent string, including errors and overflow")
+    void parse_bytes_should_match_string_parse() {
+        String[] samples = {"000000512.24", "  1.5 ", "0.255", "-0.255", "+7", "          ", "1.", ".5"};
+        for (String sample : samples) {
+            byte[] line = ("xx" + sample + "yy").getBytes(StandardCharsets.ISO_8859_1);
+            assertThat(Money.parse(line, 2, 2 + sample.length())).as(sample).isEqualTo(Money.parse(sample));
+        }
+        byte[] invalid = "12,50".getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(NumberFormatException.class, () -> Money.parse(invalid, 0, invalid.length));
+        byte[] sign = "-".getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(NumberFormatException.class, () -> Money.parse(sign, 0, sign.length));
+        byte[] huge = "999999999999999999999".getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(ArithmeticException.class, () -> Money.parse(huge, 0, huge.length));
+    }
+
+    @Test
+    @DisplayName("should format like BigDecimal.setScale(2, HALF_UP).toPlainString()")
+    void format_should_match_big_decimal() {
+        for (long cents : new long[]{0, 5, -5, 99, 100, 51224, -123456789, 1_000_000_000_00L}) {
+            assertThat(Money.format(cents))
+                    .isEqualTo(BigDecimal.valueOf(cents, 2).setScale(2, RoundingMode.HALF_UP).toPlainString());
+        }
+        assertThat(Money.format(new BigDecimal("10.005"))).isEqualTo("10.01");
+        assertThat(Money.format((BigDecimal) null)).isEqualTo("0.00");
+    }
+}
@@ -0,0 +1,38 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedLineReaderTest {
+
+    @Test
+    @DisplayName("should split lines like BufferedReader.readLine")
+    void shouldSplitLinesLikeBufferedReader() throws Exception {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("a\nb\r\nc\rd\n\ne"));
+
+        assertThat(reader.readLine()).isEqualTo("a");
+        assertThat(reader.readLine()).isEqualTo("b");
+        assertThat(reader.readLine()).isEqualTo("c");
+        assertThat(reader.readLine()).isEqualTo("d");
+        assertThat(reader.readLine()).isEmpty();
+        assertThat(reader.readLine()).isEqualTo("e");
+        assertThat(reader.readLine()).isNull();
+    }
+
+    @Test
+    @DisplayName("should abort with the line number when a line exceeds the limit")
+    void shouldRejectLineOverLimit() throws Exception {
+        String content = "ok\n" + "x".repeat(LegacyRecordReader.MAX_LINE_LENGTH + 1) + "\n";
+        BoundedLineReader reader = new BoundedLineReader(new StringReader(content));
+
+        assertThat(reader.readLine()).isEqualTo("ok");
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, reader::readLine);
+        assertThat(e.getMessage()).startsWith("Linha 2 ");
+    }
+}
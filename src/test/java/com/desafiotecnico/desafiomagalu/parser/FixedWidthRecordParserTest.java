@@ -0,0 +1,271 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedWidthRecordParserTest {
+
+    private final FixedWidthRecordParser parser = new FixedWidthRecordParser(StandardCharsets.ISO_8859_1);
+    private final LegacyLineParser legacyParser = new LegacyLineParser();
+
+    private static String buildLine(long userId,
+                                    String userName,
+                                    long orderId,
+                                    long productId,
+                                    String valueAsDecimal,
+                                    String dateYmd) {
+        String userIdRaw = String.format("%010d", userId);
+        String userNameFixed = (userName == null ? "" : userName);
+        if (userNameFixed.length() > 45) userNameFixed = userNameFixed.substring(0, 45);
+        String userNameRaw = String.format("%-45s", userNameFixed);
+        String orderIdRaw = String.format("%010d", orderId);
+        String productIdRaw = String.format("%010d", productId);
+        String valueRaw = String.format("%12s", valueAsDecimal).replace(' ', '0');
+        return userIdRaw + userNameRaw + orderIdRaw + productIdRaw + valueRaw + dateYmd;
+    }
+
+    private LegacyRecord parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        return parser.parse(bytes, 0, bytes.length, new LegacyRecord());
+    }
+
+    @Test
+    @DisplayName("should parse a valid legacy line into primitive fields")
+    void shouldParseValidLine() {
+        LegacyRecord r = parse(buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201"));
+
+        assertThat(r.getUserId()).isEqualTo(1L);
+        assertThat(r.getUserName()).isEqualTo("Zarelli");
+        assertThat(r.getOrderId()).isEqualTo(123L);
+        assertThat(r.getProductId()).isEqualTo(111L);
+        assertThat(r.getValueCents()).isEqualTo(51224L);
+        assertThat(r.getEpochDay()).isEqualTo((int) LocalDate.of(2021, 12, 1).toEpochDay());
+    }
+
+    @Test
+    @DisplayName("should parse the space-padded layout from the README sample")
+    void shouldParseSpacePaddedSample() {
+        LegacyRecord r = parse("0000000002" + " ".repeat(37) + "Medeiros" + "0000012345" + "0000000111" + "      256.24" + "20201201");
+
+        assertThat(r.getUserId()).isEqualTo(2L);
+        assertThat(r.getUserName()).isEqualTo("Medeiros");
+        assertThat(r.getOrderId()).isEqualTo(12345L);
+        assertThat(r.getValue()).isEqualByComparingTo(new BigDecimal("256.24"));
+        assertThat(r.getDate()).isEqualTo(LocalDate.of(2020, 12, 1));
+    }
+
+    @Test
+    @DisplayName("should parse from a ByteBuffer slice at an arbitrary offset")
+    void shouldParseFromByteBufferSlice() {
+        String line = buildLine(7L, "Ana", 70L, 700L, "000000001.5", "20240229");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(200);
+        buffer.put(10, line.getBytes(StandardCharsets.ISO_8859_1));
+
+        LegacyRecord r = parser.parse(buffer, 10, line.length(), new LegacyRecord());
+
+        assertThat(r.getUserName()).isEqualTo("Ana");
+        assertThat(r.getValueCents()).isEqualTo(150L);
+        assertThat(r.getDate()).isEqualTo(LocalDate.of(2024, 2, 29));
+    }
+
+    @Test
+    @DisplayName("should produce the same result as LegacyLineParser for generated lines")
+    void shouldMatchLegacyLineParser() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            String value = (random.nextInt(1_000_000)) + "." + String.format("%02d", random.nextInt(100));
+            if (i % 7 == 0) value = String.valueOf(random.nextInt(100_000));
+            LocalDate date = LocalDate.of(1990, 1, 1).plusDays(random.nextInt(20_000));
+            String line = buildLine(random.nextInt(1_000_000), "User " + i, random.nextInt(1_000_000),
+                    random.nextInt(1_000_000), value, date.toString().replace("-", ""));
+
+            ParsedLine expected = legacyParser.parse(line);
+            ParsedLine actual = parse(line).toParsedLine();
+
+            assertThat(actual.getUserId()).isEqualTo(expected.getUserId());
+            assertThat(actual.getUserName()).isEqualTo(expected.getUserName());
+            assertThat(actual.getOrderId()).isEqualTo(expected.getOrderId());
+            assertThat(actual.getProductId()).isEqualTo(expected.getProductId());
+            assertThat(actual.getValue()).isEqualByComparingTo(expected.getValue());
+            assertThat(actual.getDate()).isEqualTo(expected.getDate());
+        }
+    }
+
+    @Test
+    @DisplayName("should throw BadFileFormatException when line is shorter than expected")
+    void shouldThrowWhenLineTooShort() {
+        assertThrows(BadFileFormatException.class, () -> parse("too short"));
+    }
+
+    @Test
+    @DisplayName("truncated line should point at the start of the first incomplete field in both parsers")
+    void truncatedLineShouldReportFirstMissingField() {
+        String line = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        int[][] cases = {{90, 87}, {87, 87}, {80, 75}, {70, 65}, {60, 55}, {30, 10}, {5, 0}};
+        for (int[] c : cases) {
+            String truncated = line.substring(0, c[0]);
+            BadFileFormatException fast = assertThrows(BadFileFormatException.class, () -> parse(truncated));
+            BadFileFormatException legacy = assertThrows(BadFileFormatException.class,
+                    () -> legacyParser.parse(truncated));
+
+            assertThat(fast.getOffset()).as("offset for length %d", c[0]).isEqualTo(c[1]);
+            assertThat(legacy.getOffset()).isEqualTo(fast.getOffset());
+            assertThat(legacy.getField()).isEqualTo(fast.getField());
+        }
+        assertThat(assertThrows(BadFileFormatException.class, () -> parse(line.substring(0, 90))).getField())
+                .isEqualTo("date");
+    }
+
+    @Test
+    @DisplayName("text and byte paths should accept, reject and number the same edge-case lines alike")
+    void textAndBytePathsShouldAgreeOnEdgeCases() throws Exception {
+        String valid = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String content = String.join("", List.of(
+                valid, "\r",                                                          // 1: CR sozinho
+                "-000000001" + valid.substring(10), "\r\n",                            // 2: userId com sinal
+                valid.substring(0, 55) + "+000000123" + valid.substring(65), "\n",     // 3: orderId com sinal
+                "\r",                                                                 // 4: vazia
+                valid.substring(0, 65) + "00000 0111" + valid.substring(75), "\r",     // 5: espaço no id
+                "   ", "\r\n",                                                         // 6: em branco
+                "short", "\r",                                                        // 7: truncada
+                valid.substring(0, 10) + "  Nome com espaços" + valid.substring(28), "\r\n",
+                valid, "\r"));                                                        // 9: CR no fim
+        byte[] bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+
+        List<String> textAccepted = new ArrayList<>();
+        List<String> textRejected = new ArrayList<>();
+        long textLines = 0;
+        try (BoundedLineReader lines = new BoundedLineReader(new StringReader(content))) {
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                textLines++;
+                if (line.isBlank()) continue;
+                try {
+                    ParsedLine parsed = legacyParser.parse(line);
+                    textAccepted.add(textLines + ":" + parsed.getUserId() + "/" + parsed.getUserName());
+                } catch (BadFileFormatException e) {
+                    textRejected.add(textLines + ":" + e.getField() + "@" + e.getOffset());
+                }
+            }
+        }
+
+        List<String> streamAccepted = new ArrayList<>();
+        List<String> streamRejected = new ArrayList<>();
+        LegacyRecordReader stream = new LegacyRecordReader(parser,
+                (lineNumber, e) -> streamRejected.add(lineNumber + ":" + e.getField() + "@" + e.getOffset()));
+        stream.read(new OneByteAtATimeInputStream(bytes),
+                r -> streamAccepted.add(stream.linesRead() + ":" + r.getUserId() + "/" + r.getUserName()));
+
+        List<String> bufferAccepted = new ArrayList<>();
+        List<String> bufferRejected = new ArrayList<>();
+        LegacyRecordReader buffer = new LegacyRecordReader(parser,
+                (lineNumber, e) -> bufferRejected.add(lineNumber + ":" + e.getField() + "@" + e.getOffset()));
+        buffer.read(ByteBuffer.wrap(bytes), 0, bytes.length,
+                r -> bufferAccepted.add(buffer.linesRead() + ":" + r.getUserId() + "/" + r.getUserName()));
+
+        assertThat(textLines).isEqualTo(9);
+        assertThat(textAccepted).containsExactly("1:1/Zarelli", "8:1/Nome com espaços", "9:1/Zarelli");
+        assertThat(textRejected).containsExactly("2:userId@0", "3:orderId@55", "5:productId@65", "7:userId@0");
+        assertThat(streamAccepted).isEqualTo(textAccepted);
+        assertThat(streamRejected).isEqualTo(textRejected);
+        assertThat(stream.linesRead()).isEqualTo(textLines);
+        assertThat(bufferAccepted).isEqualTo(textAccepted);
+        assertThat(bufferRejected).isEqualTo(textRejected);
+        assertThat(buffer.linesRead()).isEqualTo(textLines);
+    }
+
+    @Test
+    @DisplayName("should throw BadFileFormatException for invalid monetary field")
+    void shouldThrowForInvalidMonetaryField() {
+        String line = buildLine(1L, "Zarelli", 123L, 111L, "00000ABCDEF", "20211201");
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> parse(line));
+        assertThat(e.getField()).isEqualTo("value");
+        assertThat(e.getOffset()).isEqualTo(75);
+    }
+
+    @Test
+    @DisplayName("should throw BadFileFormatException for invalid date field")
+    void shouldThrowForInvalidDate() {
+        String line = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "2021ABCD");
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> parse(line));
+        assertThat(e.getField()).isEqualTo("date");
+        assertThat(e.getOffset()).isEqualTo(87);
+    }
+
+    @Test
+    @DisplayName("reader should split LF/CRLF lines, skip blank lines and accept a last line without newline")
+    void readerShouldSplitLines() throws Exception {
+        String l1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String l2 = buildLine(2L, "Medeiros", 12345L, 122L, "000000256.24", "20201201");
+        String content = l1 + "\r\n\n   \n" + l2;
+
+        List<String> names = new ArrayList<>();
+        long count = new LegacyRecordReader(parser).read(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)),
+                r -> names.add(r.getUserName()));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(names).containsExactly("Zarelli", "Medeiros");
+    }
+
+    @Test
+    @DisplayName("reader should hand invalid lines to the handler with their line number and keep reading")
+    void readerShouldReportRejectedLines() throws Exception {
+        String l1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String bad = buildLine(2L, "Medeiros", 12345L, 122L, "000000256.24", "2020ABCD");
+        String content = l1 + "\n\n" + bad + "\r\nshort\n" + l1;
+
+        List<String> rejected = new ArrayList<>();
+        LegacyRecordReader reader = new LegacyRecordReader(parser,
+                (lineNumber, error) -> rejected.add(lineNumber + ":" + error.getField() + "@" + error.getOffset()));
+        long count = reader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), r -> { });
+
+        assertThat(count).isEqualTo(2);
+        assertThat(reader.linesRead()).isEqualTo(5);
+        assertThat(rejected).containsExactly("3:date@87", "4:userId@0");
+    }
+
+    @Test
+    @DisplayName("reader should abort with the line number when a line runs past the limit without a newline")
+    void readerShouldRejectUnterminatedHugeLine() {
+        String content = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201") + "\n"
+                + "9".repeat(LegacyRecordReader.MAX_LINE_LENGTH * 40);
+        List<Long> rejected = new ArrayList<>();
+        LegacyRecordReader reader = new LegacyRecordReader(parser, (lineNumber, error) -> rejected.add(lineNumber));
+
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> reader.read(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1)), r -> { }));
+        assertThat(e.getMessage()).startsWith("Linha 2 ");
+        assertThat(e.getField()).isEqualTo("line");
+        assertThat(rejected).isEmpty();
+    }
+
+    /**
+     * Entrega um byte por leitura, para que todo {@code '\r'} caia no fim do buffer do leitor.
+     */
+    private static final class OneByteAtATimeInputStream extends ByteArrayInputStream {
+
+        OneByteAtATimeInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
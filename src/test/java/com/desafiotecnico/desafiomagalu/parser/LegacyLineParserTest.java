@@ -82,7 +82,9 @@ class LegacyLineParserTest {
         badValue = String.format("%12s", badValue).replace(' ', '0');
         String line = buildLine(1L, "Zarelli", 123L, 111L, badValue, "20211201");
 
-        assertThrows(BadFileFormatException.class, () -> parser.parse(line));
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> parser.parse(line));
+        assertThat(e.getField()).isEqualTo("value");
+        assertThat(e.getOffset()).isEqualTo(75);
     }
 
     @Test
@@ -90,6 +92,8 @@ class LegacyLineParserTest {
     void shouldThrowForInvalidDate() {
         String line = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "2021ABCD"); // invalid date
 
-        assertThrows(BadFileFormatException.class, () -> parser.parse(line));
+        BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> parser.parse(line));
+        assertThat(e.getField()).isEqualTo("date");
+        assertThat(e.getOffset()).isEqualTo(87);
     }
 }
\ No newline at end of file
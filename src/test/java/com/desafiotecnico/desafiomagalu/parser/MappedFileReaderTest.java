@@ -0,0 +1,94 @@
+package com.desafiotecnico.desafiomagalu.parser;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String buildLine(long userId, String userName, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d", userId)
+                + String.format("%-45s", userName)
+                + String.format("%010d", orderId)
+                + String.format("%010d", productId)
+                + String.format("%12s", value).replace(' ', '0')
+                + dateYmd;
+    }
+
+    @Test
+    @DisplayName("should split the file into line-aligned windows and read every record")
+    void shouldReadAllRecordsAcrossWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(buildLine(i, "Nome Ção " + i, 1_000 + i, 10 + i, "10.0" + (i % 10), "20211201")).append('\n');
+        }
+        Path file = tempDir.resolve("legacy.txt");
+        Files.write(file, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        LegacyRecordReader reader = new LegacyRecordReader(new FixedWidthRecordParser(StandardCharsets.ISO_8859_1));
+        List<String> names = new ArrayList<>();
+        List<Integer> windowLimits = new ArrayList<>();
+
+        try (MappedFileReader mapped = MappedFileReader.open(file, 1_000)) {
+            mapped.forEachWindow((window, limit) -> {
+                windowLimits.add(limit);
+                reader.read(window, 0, limit, r -> names.add(r.getUserName()));
+            });
+        }
+
+        assertThat(names).hasSize(50);
+        assertThat(names.get(49)).isEqualTo("Nome Ção 49");
+        assertThat(windowLimits).hasSizeGreaterThan(1).allMatch(limit -> limit % 96 == 0);
+    }
+
+    @Test
+    @DisplayName("should not end a window between the CR and the LF of a CRLF line break")
+    void shouldNotSplitCrLfAcrossWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(buildLine(i, "Nome " + i, 1_000 + i, 10 + i, "10.00", "20211201")).append("\r\n");
+        }
+        Path file = tempDir.resolve("crlf.txt");
+        Files.write(file, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        LegacyRecordReader reader = new LegacyRecordReader(new FixedWidthRecordParser(StandardCharsets.ISO_8859_1));
+        List<Integer> windowLimits = new ArrayList<>();
+        long[] records = new long[1];
+
+        // janela terminando exatamente no '\r' da décima linha
+        try (MappedFileReader mapped = MappedFileReader.open(file, 10 * 97 - 1)) {
+            mapped.forEachWindow((window, limit) -> {
+                windowLimits.add(limit);
+                records[0] += reader.read(window, 0, limit, r -> { });
+            });
+        }
+
+        assertThat(records[0]).isEqualTo(50);
+        assertThat(reader.linesRead()).isEqualTo(50);
+        assertThat(windowLimits).allMatch(limit -> limit % 97 == 0);
+    }
+
+    @Test
+    @DisplayName("should fail when a single line does not fit in the mapping window")
+    void shouldFailWhenLineExceedsWindow() throws IOException {
+        Path file = tempDir.resolve("long-line.txt");
+        Files.writeString(file, "x".repeat(300) + "\n" + "y".repeat(10));
+
+        try (MappedFileReader mapped = MappedFileReader.open(file, 100)) {
+            assertThrows(IOException.class, () -> mapped.forEachWindow((window, limit) -> { }));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressedUploadTest {
+
+    private static final byte[] CONTENT =
+            "0000000002                                     Medeiros00000123450000000111     256.2420201201\n"
+                    .repeat(200).getBytes();
+
+    private static MockMultipartFile upload(byte[] content) {
+        return new MockMultipartFile("file", "legacy.txt", "text/plain", content);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void drain(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Test
+    @DisplayName("should pass plain files through and decode gzip and zstd by their magic bytes")
+    void decode_should_detect_encoding() throws Exception {
+        MockMultipartFile plain = upload(CONTENT);
+        assertThat(CompressedUpload.decode(plain, Long.MAX_VALUE)).isSameAs(plain);
+
+        byte[] gzipped = gzip(CONTENT);
+        MultipartFile gzip = CompressedUpload.decode(upload(gzipped), Long.MAX_VALUE);
+        assertThat(((CompressedUpload) gzip).getEncoding()).isEqualTo(CompressedUpload.Encoding.GZIP);
+        assertThat(gzip.getBytes()).isEqualTo(CONTENT);
+        assertThat(gzip.getSize()).isEqualTo(gzipped.length);
+
+        MultipartFile zstd = CompressedUpload.decode(upload(Zstd.compress(CONTENT)), Long.MAX_VALUE);
+        assertThat(((CompressedUpload) zstd).getEncoding()).isEqualTo(CompressedUpload.Encoding.ZSTD);
+        assertThat(zstd.getBytes()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    @DisplayName("should reject truncated, corrupted and oversized compressed uploads as bad file format")
+    void read_should_reject_broken_content() throws Exception {
+        byte[] gzipped = gzip(CONTENT);
+        byte[] flipped = gzipped.clone();
+        flipped[flipped.length / 2] ^= 0x5A;
+        MultipartFile corrupted = CompressedUpload.decode(upload(flipped), Long.MAX_VALUE);
+        assertThrows(BadFileFormatException.class, () -> drain(corrupted));
+
+        byte[] zstd = Zstd.compress(CONTENT);
+        MultipartFile truncated = CompressedUpload.decode(
+                upload(Arrays.copyOf(zstd, zstd.length - 4)), Long.MAX_VALUE);
+        assertThrows(BadFileFormatException.class, () -> drain(truncated));
+
+        MultipartFile oversized = CompressedUpload.decode(upload(gzipped), CONTENT.length - 1);
+        assertThrows(BadFileFormatException.class, () -> drain(oversized));
+    }
+}
@@ -0,0 +1,25 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentHashTest {
+
+    @Test
+    @DisplayName("order hash should change with the user name even when String.hashCode collides")
+    void startOrder_should_distinguish_names_with_colliding_string_hash() {
+        String[][] collisions = {{"Aa", "BB"}, {"AaAa", "BBBB"}, {"AaBB", "BBAa"}, {"Zarelli Aa", "Zarelli BB"}};
+        for (String[] pair : collisions) {
+            assertThat(pair[0].hashCode()).isEqualTo(pair[1].hashCode());
+            assertThat(ContentHash.startOrder(123L, 1L, pair[0], 18962))
+                    .isNotEqualTo(ContentHash.startOrder(123L, 1L, pair[1], 18962));
+        }
+        assertThat(ContentHash.startOrder(123L, 1L, "", 18962))
+                .isNotEqualTo(ContentHash.startOrder(123L, 1L, null, 18962))
+                .isNotEqualTo(ContentHash.startOrder(123L, 1L, "\0", 18962));
+        assertThat(ContentHash.startOrder(123L, 1L, "Zarelli", 18962))
+                .isEqualTo(ContentHash.startOrder(123L, 1L, "Zarelli", 18962));
+    }
+}
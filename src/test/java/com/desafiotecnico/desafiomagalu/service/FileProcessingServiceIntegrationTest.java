@@ -1,26 +1,57 @@
 package com.desafiotecnico.desafiomagalu.service;
 
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.dto.IngestionSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.OrderPageDto;
+import com.desafiotecnico.desafiomagalu.dto.RejectedLineDto;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.exception.InvalidCursorException;
 import com.desafiotecnico.desafiomagalu.model.OrderItemEntity;
 import com.desafiotecnico.desafiomagalu.model.OrderItemId;
 import com.desafiotecnico.desafiomagalu.repository.OrderItemRepository;
 import com.desafiotecnico.desafiomagalu.repository.OrderRepository;
 import com.desafiotecnico.desafiomagalu.repository.ProductRepository;
 import com.desafiotecnico.desafiomagalu.repository.UserRepository;
+import com.github.luben.zstd.Zstd;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+/**
+ * Cada configuração de ingestão tem sua própria classe {@code @Nested} com {@code @TestPropertySource}, e
+ * portanto seu próprio contexto: nenhum teste altera o {@link IngestionProperties} compartilhado.
+ */
 @SpringBootTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class FileProcessingServiceIntegrationTest {
@@ -97,4 +128,495 @@ class FileProcessingServiceIntegrationTest {
         OrderItemEntity item = orderItemRepository.findById(id111_123).orElseThrow();
         assertThat(item.getValue()).isEqualByComparingTo(new BigDecimal("512.24"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @Transactional
+    @DisplayName("should update existing rows instead of duplicating them when a file is uploaded again")
+    void processFile_reupload_should_update_existing_rows() throws Exception {
+        String l1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String l2 = buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201");
+        fileProcessingService.processFile(new MockMultipartFile(
+                "file", "legacy.txt", "text/plain", (l1 + "\n" + l2 + "\n").getBytes()));
+
+        String l2Changed = buildLine(1L, "Zarelli Souza", 123L, 122L, "000000100.00", "20211201");
+        String l3 = buildLine(3L, "Novo", 999L, 122L, "000000010.00", "20220101");
+        fileProcessingService.processFile(new MockMultipartFile(
+                "file", "legacy.txt", "text/plain", (l2Changed + "\n" + l1 + "\n" + l3 + "\n").getBytes()));
+
+        assertThat(userRepository.count()).isEqualTo(2);
+        assertThat(userRepository.findByUserId(1L).orElseThrow().getName()).isEqualTo("Zarelli Souza");
+        assertThat(productRepository.count()).isEqualTo(2);
+        assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                .isEqualByComparingTo(new BigDecimal("612.24"));
+        assertThat(orderItemRepository.count()).isEqualTo(3);
+        assertThat(orderItemRepository.findById(new OrderItemId(123L, 122L)).orElseThrow().getValue())
+                .isEqualByComparingTo(new BigDecimal("100.00"));
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("should page through orders by keyset, with and without a date range")
+    void queryPage_should_walk_all_orders_with_cursor() throws Exception {
+        StringBuilder all = new StringBuilder();
+        for (int i = 1; i <= 7; i++) {
+            all.append(buildLine(i % 3, "User " + (i % 3), 100L + i, 10L + i, "10.00", "2021120" + (8 - i))).append('\n');
+        }
+        fileProcessingService.processFile(new MockMultipartFile("file", "legacy.txt", "text/plain", all.toString().getBytes()));
+
+        List<Long> byId = new ArrayList<>();
+        Optional<String> after = Optional.empty();
+        int pages = 0;
+        do {
+            OrderPageDto page = fileProcessingService.queryPage(Optional.empty(), Optional.empty(), Optional.empty(), 3, after);
+            page.getUsers().forEach(u -> u.getOrders().forEach(o -> byId.add(o.getOrderId())));
+            after = Optional.ofNullable(page.getNextCursor());
+            pages++;
+        } while (after.isPresent());
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(byId).containsExactly(101L, 102L, 103L, 104L, 105L, 106L, 107L);
+
+        List<Long> byDate = new ArrayList<>();
+        after = Optional.empty();
+        do {
+            OrderPageDto page = fileProcessingService.queryPage(Optional.empty(),
+                    Optional.of(LocalDate.of(2021, 12, 2)), Optional.of(LocalDate.of(2021, 12, 6)), 2, after);
+            page.getUsers().forEach(u -> u.getOrders().forEach(o -> byDate.add(o.getOrderId())));
+            after = Optional.ofNullable(page.getNextCursor());
+        } while (after.isPresent());
+
+        assertThat(byDate).containsExactly(106L, 105L, 104L, 103L, 102L);
+        assertThrows(InvalidCursorException.class, () -> fileProcessingService.queryPage(
+                Optional.empty(), Optional.empty(), Optional.empty(), 3, Optional.of("@@not-a-cursor")));
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("should not serve cached orders after a new upload changes them")
+    void query_should_see_uploads_after_orders_were_cached() throws Exception {
+        String first = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201") + "\n";
+        fileProcessingService.processFile(new MockMultipartFile("file", "a.txt", "text/plain", first.getBytes()));
+
+        assertThat(fileProcessingService.query(Optional.of(123L), Optional.empty(), Optional.empty())
+                .getFirst().getOrders().getFirst().getTotal()).isEqualTo("512.24");
+        LocalDate day = LocalDate.of(2021, 12, 1);
+        assertThat(fileProcessingService.query(Optional.empty(), Optional.of(day), Optional.of(day))).hasSize(1);
+
+        String second = String.join("\n",
+                buildLine(1L, "Zarelli Souza", 123L, 111L, "000000100.00", "20211201"),
+                buildLine(2L, "Medeiros", 456L, 111L, "000000050.00", "20211201")) + "\n";
+        fileProcessingService.processFile(new MockMultipartFile("file", "b.txt", "text/plain", second.getBytes()));
+
+        List<UserResponseDto> byId = fileProcessingService.query(Optional.of(123L), Optional.empty(), Optional.empty());
+        assertThat(byId.getFirst().getName()).isEqualTo("Zarelli Souza");
+        assertThat(byId.getFirst().getOrders().getFirst().getTotal()).isEqualTo("100.00");
+        assertThat(fileProcessingService.query(Optional.empty(), Optional.of(day), Optional.of(day)))
+                .extracting(UserResponseDto::getUserId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("should let concurrent uploads of overlapping orders finish without duplicate keys or mixed orders")
+    void concurrent_uploads_should_serialize_on_shared_keys() throws Exception {
+        int uploads = 8;
+        List<byte[]> files = new ArrayList<>();
+        for (int f = 0; f < uploads; f++) {
+            List<String> lines = new ArrayList<>();
+            String value = String.format("%09d.00", f + 1);
+            for (long orderId = 1; orderId <= 50; orderId++) {
+                for (long productId = 1; productId <= 3; productId++) {
+                    lines.add(buildLine(orderId % 5, "User " + f, orderId, productId, value, "20211201"));
+                }
+            }
+            lines.add(buildLine(100L + f, "Own " + f, 1_000L + f, 1_000L + f, "000000001.00", "20211202"));
+            files.add(String.join("\n", lines).getBytes());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(uploads)) {
+            for (int f = 0; f < uploads; f++) {
+                MockMultipartFile file = new MockMultipartFile("file", "dc-" + f + ".txt", "text/plain", files.get(f));
+                boolean streaming = f % 2 == 0;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return streaming ? fileProcessingService.processFileStreaming(file) : fileProcessingService.processFile(file);
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(userRepository.count()).isEqualTo(5 + uploads);
+        assertThat(productRepository.count()).isEqualTo(3 + uploads);
+        assertThat(orderRepository.count()).isEqualTo(50 + uploads);
+        Map<Long, List<OrderItemEntity>> itemsByOrder = orderItemRepository.findAll().stream()
+                .collect(Collectors.groupingBy(i -> i.getId().getOrderId()));
+        for (long orderId = 1; orderId <= 50; orderId++) {
+            List<OrderItemEntity> items = itemsByOrder.get(orderId);
+            assertThat(items).hasSize(3);
+            BigDecimal value = items.getFirst().getValue();
+            assertThat(items).allSatisfy(i -> assertThat(i.getValue()).isEqualByComparingTo(value));
+            assertThat(orderRepository.findByOrderId(orderId).orElseThrow().getTotal())
+                    .isEqualByComparingTo(value.multiply(BigDecimal.valueOf(3)));
+        }
+    }
+
+    /**
+     * Base das classes {@code @Nested}: a instância externa é injetada pelo contexto padrão, então cada
+     * configuração precisa receber os beans do seu próprio contexto. Cada contexto usa um H2 próprio: com o
+     * {@code create-drop}, fechar um contexto apagaria as tabelas de outro que ainda estivesse em cache.
+     */
+    @TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:ingestion-${random.uuid}")
+    abstract class IngestionConfiguration {
+
+        @Autowired FileProcessingService fileProcessingService;
+        @Autowired OrderRepository orderRepository;
+        @Autowired OrderItemRepository orderItemRepository;
+        @Autowired UserRepository userRepository;
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.ingestion.chunk-size=2")
+    class ChunksOfTwoLines extends IngestionConfiguration {
+
+        @Autowired private MeterRegistry meterRegistry;
+
+        @Test
+        @Transactional
+        @DisplayName("should keep order totals correct when lines of an order span several streaming chunks")
+        void processFileStreaming_should_sum_totals_across_chunk_boundaries() throws Exception {
+            String l1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+            String l2 = buildLine(2L, "Medeiros", 12345L, 111L, "000000256.24", "20201201");
+            String l3 = buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201");
+            String l4 = buildLine(1L, "Zarelli", 123L, 133L, "000000100.00", "20211201");
+            String l5 = buildLine(2L, "Medeiros", 12345L, 122L, "000000256.24", "20201201");
+
+            String all = String.join("\n", l1, l2, l3, l4, l5) + "\n";
+            MockMultipartFile file = new MockMultipartFile(
+                    "file", "legacy.txt", "text/plain",
+                    new ByteArrayInputStream(all.getBytes())
+            );
+
+            IngestionSummaryDto summary = fileProcessingService.processFileStreaming(file);
+
+            assertThat(summary.getLines()).isEqualTo(5);
+            assertThat(summary.getChunks()).isEqualTo(3);
+            assertThat(summary.getOrders()).isEqualTo(2);
+
+            assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("1124.48"));
+            assertThat(orderRepository.findByOrderId(12345L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("512.48"));
+            assertThat(orderItemRepository.count()).isEqualTo(5);
+        }
+
+        @Test
+        @Transactional
+        @DisplayName("should rewrite only the rows whose stored values differ from the re-uploaded ones")
+        void reupload_should_write_only_changed_rows() throws Exception {
+            String a1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+            String b1 = buildLine(2L, "Medeiros", 456L, 111L, "000000050.00", "20211202");
+            String a2 = buildLine(1L, "Zarelli", 123L, 122L, "000000100.00", "20211201");
+            fileProcessingService.processFileStreaming(new MockMultipartFile(
+                    "file", "day1.txt", "text/plain", (a1 + "\n" + b1 + "\n").getBytes()));
+            Map<String, Double> before = rowsWritten();
+
+            fileProcessingService.processFileStreaming(new MockMultipartFile(
+                    "file", "day2.txt", "text/plain", (a1 + "\n" + a2 + "\n").getBytes()));
+            Map<String, Double> after = rowsWritten();
+
+            assertThat(after.get("users") - before.get("users")).isZero();
+            assertThat(after.get("orders") - before.get("orders")).isEqualTo(1);
+            assertThat(after.get("order_items") - before.get("order_items")).isEqualTo(1);
+            assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("612.24"));
+        }
+
+        private Map<String, Double> rowsWritten() {
+            return meterRegistry.find("ingestion.rows").counters().stream()
+                    .collect(Collectors.toMap(c -> c.getId().getTag("table"), Counter::count));
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "app.ingestion.memory-mapped=true",
+            "app.ingestion.memory-map-threshold=0B",
+            "app.ingestion.parallel=true",
+            "app.ingestion.deduplicate=false"
+    })
+    class MemoryMappedParallel extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should produce the same result when the upload is memory-mapped and parsed in parallel")
+        void processFile_memoryMapped_parallel_should_match_default_path() throws Exception {
+            String l1 = buildLine(2L, "Medeiros", 12345L, 111L, "000000256.24", "20201201");
+            String l2 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+            String l3 = buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201");
+            String l4 = buildLine(2L, "Medeiros", 12345L, 122L, "000000256.24", "20201201");
+            String all = String.join("\r\n", l1, l2, l3, l4) + "\r\n";
+
+            List<UserResponseDto> result = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt", "text/plain", all.getBytes()));
+
+            assertThat(result).extracting(UserResponseDto::getUserId).containsExactly(2L, 1L);
+            assertThat(result.get(0).getOrders().getFirst().getTotal()).isEqualTo("512.48");
+            assertThat(result.get(1).getOrders().getFirst().getTotal()).isEqualTo("1024.48");
+            assertThat(orderItemRepository.count()).isEqualTo(4);
+        }
+
+        @Test
+        @Transactional
+        @DisplayName("should parse compressed uploads in parallel like the plain memory-mapped file")
+        void processFile_should_decompress_uploads_in_parallel() throws Exception {
+            byte[] plain = compressibleFile();
+            ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+            try (OutputStream out = new DeflaterOutputStream(deflate)) {
+                out.write(plain);
+            }
+
+            List<UserResponseDto> fromPlain = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt", "text/plain", plain));
+            List<UserResponseDto> fromDeflate = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt.zz", "application/zlib", deflate.toByteArray()));
+            List<UserResponseDto> fromZstd = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt.zst", "application/zstd", Zstd.compress(plain)));
+
+            assertThat(fromDeflate).usingRecursiveComparison().isEqualTo(fromPlain);
+            assertThat(fromZstd).usingRecursiveComparison().isEqualTo(fromPlain);
+            assertThat(fromPlain.get(1).getOrders().getFirst().getTotal()).isEqualTo("1024.48");
+            assertThat(orderItemRepository.count()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "app.ingestion.parallel=true",
+            "app.ingestion.memory-map-threshold=1B",
+            "app.ingestion.deduplicate=false"
+    })
+    class ParallelAboveHeapThreshold extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should spool uploads above the threshold instead of reading them into the heap for the parallel parse")
+        void processFile_parallel_should_not_read_large_uploads_into_heap() throws Exception {
+            byte[] plain = compressibleFile();
+            MockMultipartFile notInHeap = new MockMultipartFile("file", "legacy.txt", "text/plain", plain) {
+                @Override
+                public byte[] getBytes() {
+                    throw new AssertionError("o upload não deveria ser lido inteiro para o heap");
+                }
+            };
+
+            List<UserResponseDto> fromPlain = fileProcessingService.processFile(notInHeap);
+            List<UserResponseDto> fromGzip = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt.gz", "application/gzip", gzip(plain)));
+
+            assertThat(fromGzip).usingRecursiveComparison().isEqualTo(fromPlain);
+            assertThat(fromPlain.get(1).getOrders().getFirst().getTotal()).isEqualTo("1024.48");
+            assertThat(orderItemRepository.count()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.ingestion.chunk-size=1")
+    class SingleLineChunks extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should skip files already ingested and orders whose content did not change, even across chunks")
+        void reupload_should_skip_seen_files_and_unchanged_orders() throws Exception {
+            String a1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+            String a2 = buildLine(1L, "Zarelli", 123L, 122L, "000000100.00", "20211201");
+            String b1 = buildLine(2L, "Medeiros", 456L, 111L, "000000050.00", "20211202");
+            String day1 = String.join("\n", a1, b1, a2) + "\n";
+
+            IngestionSummaryDto first = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "day1.txt", "text/plain", day1.getBytes()));
+            assertThat(first.getChunks()).isEqualTo(3);
+            assertThat(first.getSkippedOrders()).isZero();
+
+            IngestionSummaryDto again = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "day1.txt", "text/plain", day1.getBytes()));
+            assertThat(again.isDuplicate()).isTrue();
+            assertThat(again.getLines()).isEqualTo(3);
+            assertThat(again.getChunks()).isZero();
+
+            String c1 = buildLine(3L, "Novo", 789L, 133L, "000000010.00", "20211203");
+            String b2 = buildLine(2L, "Medeiros", 456L, 122L, "000000001.00", "20211202");
+            String day2 = day1 + c1 + "\n" + b2 + "\n";
+            IngestionSummaryDto second = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "day2.txt", "text/plain", day2.getBytes()));
+
+            assertThat(second.isDuplicate()).isFalse();
+            assertThat(second.getOrders()).isEqualTo(3);
+            assertThat(second.getSkippedOrders()).isEqualTo(1);
+            assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("612.24"));
+            assertThat(orderRepository.findByOrderId(456L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("51.00"));
+            assertThat(orderItemRepository.count()).isEqualTo(5);
+
+            List<UserResponseDto> replayed = fileProcessingService.processFile(
+                    new MockMultipartFile("file", "day2.txt", "text/plain", day2.getBytes()));
+            assertThat(replayed).extracting(UserResponseDto::getUserId).containsExactly(1L, 2L, 3L);
+            assertThat(orderRepository.count()).isEqualTo(3);
+        }
+
+        @Test
+        @Transactional
+        @DisplayName("should rewrite an order whose only change is a user name with the same String.hashCode")
+        void reupload_should_update_name_that_collides_under_string_hash() throws Exception {
+            assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+            fileProcessingService.processFileStreaming(new MockMultipartFile("file", "a.txt", "text/plain",
+                    buildLine(1L, "Aa", 123L, 111L, "000000512.24", "20211201").getBytes()));
+
+            IngestionSummaryDto renamed = fileProcessingService.processFileStreaming(new MockMultipartFile(
+                    "file", "b.txt", "text/plain", buildLine(1L, "BB", 123L, 111L, "000000512.24", "20211201").getBytes()));
+
+            assertThat(renamed.getSkippedOrders()).isZero();
+            assertThat(userRepository.findByUserId(1L).orElseThrow().getName()).isEqualTo("BB");
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"app.ingestion.commit-per-chunk=true", "app.ingestion.chunk-size=2"})
+    class CommitPerChunk extends IngestionConfiguration {
+
+        @Test
+        @DisplayName("should keep chunks committed before a failure and resume from them on the next upload")
+        void processFileStreaming_commitPerChunk_should_keep_committed_chunks() throws Exception {
+            String a1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+            String b1 = buildLine(2L, "Medeiros", 456L, 111L, "000000050.00", "20211202");
+            String a2 = buildLine(1L, "Zarelli", 123L, 122L, "000000100.00", "20211201");
+
+            assertThrows(BadFileFormatException.class, () -> fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "broken.txt", "text/plain", (a1 + "\n" + b1 + "\ntruncated\n").getBytes())));
+            assertThat(orderRepository.count()).isEqualTo(2);
+
+            IngestionSummaryDto retry = fileProcessingService.processFileStreaming(new MockMultipartFile(
+                    "file", "fixed.txt", "text/plain", String.join("\n", a1, a2, b1).getBytes()));
+
+            assertThat(retry.getSkippedOrders()).isEqualTo(1);
+            assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("612.24"));
+            assertThat(orderItemRepository.count()).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "app.ingestion.memory-mapped=true",
+            "app.ingestion.memory-map-threshold=0B",
+            "app.ingestion.chunk-size=1"
+    })
+    class MemoryMapped extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should ingest gzip, zstd and deflate uploads like the plain file and deduplicate across encodings")
+        void processFile_should_decompress_uploads() throws Exception {
+            byte[] plain = compressibleFile();
+
+            IngestionSummaryDto streamed = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "legacy.txt.gz", "application/gzip", gzip(plain)));
+            assertThat(streamed.getLines()).isEqualTo(3);
+            assertThat(streamed.getOrders()).isEqualTo(2);
+            assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                    .isEqualByComparingTo(new BigDecimal("1024.48"));
+
+            IngestionSummaryDto plainAgain = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "legacy.txt", "text/plain", plain));
+            assertThat(plainAgain.isDuplicate()).isTrue();
+
+            List<UserResponseDto> fromZstd = fileProcessingService.processFile(new MockMultipartFile(
+                    "file", "legacy.txt.zst", "application/zstd", Zstd.compress(plain)));
+            assertThat(fromZstd).extracting(UserResponseDto::getUserId).containsExactly(2L, 1L);
+            assertThat(fromZstd.get(1).getOrders().getFirst().getTotal()).isEqualTo("1024.48");
+            assertThat(orderItemRepository.count()).isEqualTo(3);
+        }
+    }
+
+    /**
+     * O mesmo arquivo com linhas inválidas, lido por cada caminho de parse no modo tolerante.
+     */
+    abstract class LenientScenario extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should drop invalid lines in lenient mode and report where they were")
+        void lenient_should_skip_bad_lines_and_report_them() throws Exception {
+            IngestionSummaryDto summary = fileProcessingService.processFileStreaming(
+                    new MockMultipartFile("file", "legacy.txt", "text/plain", fileWithInvalidLines()));
+
+            assertThat(summary.getLines()).isEqualTo(3);
+            assertThat(summary.getRejectedLines())
+                    .extracting(RejectedLineDto::getLineNumber, RejectedLineDto::getField, RejectedLineDto::getOffset)
+                    .containsExactly(tuple(2L, "date", 87), tuple(5L, "userId", 0));
+            assertThat(orderRepository.count()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.ingestion.lenient=true")
+    class LenientLineParser extends LenientScenario {
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"app.ingestion.lenient=true", "app.ingestion.fast-parser=true"})
+    class LenientFastParser extends LenientScenario {
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "app.ingestion.lenient=true",
+            "app.ingestion.parallel=true",
+            "app.ingestion.memory-mapped=true",
+            "app.ingestion.memory-map-threshold=0B"
+    })
+    class LenientMemoryMappedParallel extends LenientScenario {
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"app.ingestion.lenient=true", "app.ingestion.max-rejected-lines=1"})
+    class LenientWithRejectionLimit extends IngestionConfiguration {
+
+        @Test
+        @Transactional
+        @DisplayName("should abort the lenient upload once rejections pass max-rejected-lines")
+        void lenient_should_abort_past_max_rejected_lines() {
+            BadFileFormatException e = assertThrows(BadFileFormatException.class, () -> fileProcessingService.processFile(
+                    new MockMultipartFile("file", "legacy.txt", "text/plain", fileWithInvalidLines())));
+            assertThat(e.getMessage()).contains("linha 5");
+            assertThat(orderRepository.count()).isZero();
+        }
+    }
+
+    // ---------------- helpers ----------------
+
+    private static byte[] compressibleFile() {
+        String l1 = buildLine(2L, "Medeiros", 12345L, 111L, "000000256.24", "20201201");
+        String l2 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String l3 = buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201");
+        return (String.join("\n", l1, l2, l3) + "\n").getBytes();
+    }
+
+    private static byte[] gzip(byte[] plain) throws Exception {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(plain);
+        }
+        return gzip.toByteArray();
+    }
+
+    private static byte[] fileWithInvalidLines() {
+        String good1 = buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201");
+        String badDate = buildLine(2L, "Medeiros", 456L, 111L, "000000050.00", "2021ABCD");
+        String good2 = buildLine(2L, "Medeiros", 789L, 122L, "000000010.00", "20211202");
+        return String.join("\n", good1, badDate, "", good2, "short", good1).getBytes();
+    }
+}
@@ -1,11 +1,13 @@
 package com.desafiotecnico.desafiomagalu.service;
 
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
 import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
-import com.desafiotecnico.desafiomagalu.model.*;
 import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser;
 import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
 import com.desafiotecnico.desafiomagalu.repository.*;
-import org.junit.jupiter.api.BeforeEach;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderItemRow;
+import com.desafiotecnico.desafiomagalu.repository.OrderBulkRepository.OrderRow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,10 +15,10 @@ import org.mockito.*;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.ByteArrayInputStream;
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -29,17 +31,20 @@ class FileProcessingServiceUnitTest {
     @Mock private OrderRepository orderRepository;
     @Mock private ProductRepository productRepository;
     @Mock private OrderItemRepository orderItemRepository;
+    @Mock private OrderBulkRepository orderBulkRepository;
+    @Mock private IngestionLedgerRepository ingestionLedgerRepository;
+    @Mock private OrderCache orderCache;
+    @Spy private IngestionLocks ingestionLocks = new IngestionLocks();
+    @Mock private OrderSummaryRepository orderSummaryRepository;
+    @Spy private IngestionProperties ingestionProperties = new IngestionProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    @Spy private PipelineMetrics metrics = new PipelineMetrics(registry);
 
     @InjectMocks
     private FileProcessingService fileProcessingService;
 
-    @BeforeEach
-    void setup() {
-        when(userRepository.save(any(UserEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(orderRepository.save(any(OrderEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(productRepository.save(any(ProductEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(orderItemRepository.save(any(OrderItemEntity.class))).thenAnswer(inv -> inv.getArgument(0));
-    }
+    @Captor private ArgumentCaptor<List<OrderRow>> ordersCaptor;
+    @Captor private ArgumentCaptor<List<OrderItemRow>> itemsCaptor;
 
     @Test
     @DisplayName("should parse file, persist entities and return expected DTO")
@@ -48,10 +53,10 @@ class FileProcessingServiceUnitTest {
         MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain",
                 new ByteArrayInputStream(fileContent.getBytes()));
 
-        ParsedLine p1 = new ParsedLine(2L, "Medeiros", 12345L, 111L, new BigDecimal("256.24"), LocalDate.of(2020,12,1));
-        ParsedLine p2 = new ParsedLine(1L, "Zarelli" , 123L , 111L, new BigDecimal("512.24"), LocalDate.of(2021,12,1));
-        ParsedLine p3 = new ParsedLine(1L, "Zarelli" , 123L , 122L, new BigDecimal("512.24"), LocalDate.of(2021,12,1));
-        ParsedLine p4 = new ParsedLine(2L, "Medeiros", 12345L, 122L, new BigDecimal("256.24"), LocalDate.of(2020,12,1));
+        ParsedLine p1 = new ParsedLine(2L, "Medeiros", 12345L, 111L, 25624L, LocalDate.of(2020,12,1));
+        ParsedLine p2 = new ParsedLine(1L, "Zarelli" , 123L , 111L, 51224L, LocalDate.of(2021,12,1));
+        ParsedLine p3 = new ParsedLine(1L, "Zarelli" , 123L , 122L, 51224L, LocalDate.of(2021,12,1));
+        ParsedLine p4 = new ParsedLine(2L, "Medeiros", 12345L, 122L, 25624L, LocalDate.of(2020,12,1));
 
         when(parser.parse(anyString()))
                 .thenReturn(p1)
@@ -59,10 +64,9 @@ class FileProcessingServiceUnitTest {
                 .thenReturn(p3)
                 .thenReturn(p4);
 
-        when(userRepository.findByUserId(anyLong())).thenReturn(Optional.empty());
-        when(orderRepository.findByOrderId(anyLong())).thenReturn(Optional.empty());
-        when(productRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(orderItemRepository.findById(any())).thenReturn(Optional.empty());
+        when(orderBulkRepository.findUserNames(anyCollection())).thenReturn(new HashMap<>());
+        when(orderBulkRepository.findOrders(anyCollection())).thenReturn(new HashMap<>());
+        when(orderBulkRepository.findExistingProductIds(anyCollection())).thenReturn(new HashSet<>());
 
         List<UserResponseDto> result = fileProcessingService.processFile(file);
 
@@ -81,9 +85,37 @@ class FileProcessingServiceUnitTest {
         assertThat(user2.getOrders().getFirst().getProducts()).hasSize(2);
         assertThat(user2.getOrders().getFirst().getTotal()).isEqualTo("512.48");
 
-        verify(userRepository, atLeastOnce()).save(any(UserEntity.class));
-        verify(orderRepository, atLeastOnce()).save(any(OrderEntity.class));
-        verify(productRepository, atLeastOnce()).save(any(ProductEntity.class));
-        verify(orderItemRepository, atLeastOnce()).save(any(OrderItemEntity.class));
+        verify(orderBulkRepository).insertUsers(argThat(rows -> rows.size() == 2));
+        verify(orderBulkRepository).insertProducts(argThat(ids -> ids.containsAll(List.of(111L, 122L)) && ids.size() == 2));
+        verify(orderBulkRepository).insertOrders(ordersCaptor.capture());
+        verify(orderBulkRepository).insertOrderItems(itemsCaptor.capture());
+        verify(orderBulkRepository, never()).findOrderItemValues(anyCollection());
+
+        assertThat(ordersCaptor.getValue()).extracting(OrderRow::orderId).containsExactly(12345L, 123L);
+        assertThat(itemsCaptor.getValue()).hasSize(4);
+        verifyNoInteractions(userRepository, orderRepository, productRepository, orderItemRepository);
+    }
+
+    @Test
+    @DisplayName("should record lines, bytes, row counts and per-stage timings of a successful upload")
+    void processFile_should_record_pipeline_metrics() {
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "L1\nL2\n".getBytes());
+        when(parser.parse(anyString()))
+                .thenReturn(new ParsedLine(1L, "Zarelli", 123L, 111L, 100L, LocalDate.of(2021, 12, 1)))
+                .thenReturn(new ParsedLine(1L, "Zarelli", 123L, 122L, 200L, LocalDate.of(2021, 12, 1)));
+        when(orderBulkRepository.findUserNames(anyCollection())).thenReturn(new HashMap<>());
+        when(orderBulkRepository.findOrders(anyCollection())).thenReturn(new HashMap<>());
+        when(orderBulkRepository.findExistingProductIds(anyCollection())).thenReturn(new HashSet<>());
+
+        fileProcessingService.processFile(file);
+
+        assertThat(registry.get("ingestion.lines").counter().count()).isEqualTo(2);
+        assertThat(registry.get("ingestion.bytes").counter().count()).isEqualTo(file.getSize());
+        assertThat(registry.get("ingestion.rows").tag("table", "order_items").counter().count()).isEqualTo(2);
+        assertThat(registry.get("ingestion.uploads").tags("mode", "sync", "outcome", "success").counter().count()).isEqualTo(1);
+        for (String stage : List.of("parse", "persist_lookup", "persist_users", "persist_products",
+                "persist_orders", "persist_items", "build_response")) {
+            assertThat(registry.get("ingestion.stage").tag("stage", stage).timer().count()).as(stage).isEqualTo(1);
+        }
     }
 }
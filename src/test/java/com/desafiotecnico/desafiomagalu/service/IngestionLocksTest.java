@@ -0,0 +1,60 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.exception.IngestionConflictException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IngestionLocksTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final IngestionLocks locks = new IngestionLocks();
+
+    @Test
+    @DisplayName("should block only callers that share a key and wake them when the holder releases")
+    void acquire_should_serialize_only_shared_keys() throws Exception {
+        IngestionLocks.Held first = locks.acquire(Map.of("orders", Set.of(1L, 2L)), WAIT);
+
+        CompletableFuture<IngestionLocks.Held> disjoint = CompletableFuture.supplyAsync(
+                () -> locks.acquire(Map.of("orders", Set.of(3L), "users", Set.of(1L)), WAIT));
+        assertThat(disjoint.get(1, TimeUnit.SECONDS)).isNotNull();
+
+        CompletableFuture<IngestionLocks.Held> shared = CompletableFuture.supplyAsync(
+                () -> locks.acquire(Map.of("orders", Set.of(2L, 4L)), WAIT));
+        Thread.sleep(100);
+        assertThat(shared).isNotDone();
+        assertThat(locks.size()).isEqualTo(4);
+
+        first.close();
+        shared.get(1, TimeUnit.SECONDS).close();
+        disjoint.get().close();
+        assertThat(locks.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should let the owning thread take its keys again and give up after the timeout")
+    void acquire_should_be_reentrant_and_time_out() throws Exception {
+        IngestionLocks.Held outer = locks.acquire(Map.of("products", List.of(7L)), WAIT);
+        IngestionLocks.Held inner = locks.acquire(Map.of("products", List.of(7L, 8L)), WAIT);
+        inner.close();
+        assertThat(locks.size()).isEqualTo(1);
+
+        CompletableFuture<Void> other = CompletableFuture.runAsync(
+                () -> locks.acquire(Map.of("products", List.of(7L)), Duration.ofMillis(50)));
+        Throwable e = assertThrows(Exception.class, () -> other.get(1, TimeUnit.SECONDS)).getCause();
+        assertThat(e).isInstanceOf(IngestionConflictException.class);
+
+        outer.close();
+        assertThat(locks.size()).isZero();
+    }
+}
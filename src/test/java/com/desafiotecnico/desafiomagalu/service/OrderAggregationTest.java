@@ -0,0 +1,147 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.parser.LegacyLineParser.ParsedLine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderAggregationTest {
+
+    static {
+        // records não expõem offsets via Unsafe; o JOL calcula os offsets por conta própria
+        System.setProperty("jol.magicFieldOffset", "true");
+    }
+
+    private static ParsedLine line(long userId, long orderId, long productId, String value, LocalDate date) {
+        return new ParsedLine(userId, "User " + userId, orderId, productId, Money.parse(value), date);
+    }
+
+    private static List<String> flatten(OrderAggregation aggregation) {
+        List<String> rows = new ArrayList<>();
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            rows.add("U" + aggregation.userId(u));
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                rows.add("O" + aggregation.orderId(o) + ":" + aggregation.orderDate(o) + ":" + aggregation.orderTotalCents(o));
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
+                    rows.add("P" + aggregation.lineProductId(l) + ":" + aggregation.lineValueCents(l));
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("should group lines by user and order in first-seen order, summing totals in cents")
+    void add_should_keep_first_seen_order() {
+        LocalDate day = LocalDate.of(2021, 12, 1);
+        OrderAggregation aggregation = new OrderAggregation();
+        aggregation.add(line(2, 20, 1, "10.50", day));
+        aggregation.add(line(1, 10, 2, "1.25", day.plusDays(1)));
+        aggregation.add(line(2, 21, 3, "3", day));
+        aggregation.add(line(2, 20, 4, "0.255", day.plusDays(9)));
+
+        assertThat(flatten(aggregation)).containsExactly(
+                "U2", "O20:2021-12-01:1076", "P1:1050", "P4:26", "O21:2021-12-01:300", "P3:300",
+                "U1", "O10:2021-12-02:125", "P2:125");
+        assertThat(aggregation.lineCount()).isEqualTo(4);
+        assertThat(aggregation.orderCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should merge a later partial exactly like reading its lines sequentially, and reuse columns after clear")
+    void merge_should_match_sequential_and_clear_should_reset() {
+        Random random = new Random(3);
+        List<ParsedLine> lines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long userId = random.nextInt(300);
+            lines.add(line(userId, userId * 100 + random.nextInt(5), random.nextInt(50),
+                    random.nextInt(1_000) + "." + random.nextInt(10) + "0", LocalDate.of(2021, 1, 1).plusDays(userId)));
+        }
+
+        OrderAggregation sequential = new OrderAggregation();
+        lines.forEach(sequential::add);
+
+        OrderAggregation first = new OrderAggregation();
+        OrderAggregation second = new OrderAggregation();
+        lines.subList(0, 2_345).forEach(first::add);
+        lines.subList(2_345, lines.size()).forEach(second::add);
+        first.merge(second);
+
+        assertThat(flatten(first)).containsExactlyElementsOf(flatten(sequential));
+
+        long bytes = sequential.estimatedBytes();
+        sequential.clear();
+        assertThat(sequential.isEmpty()).isTrue();
+        assertThat(sequential.estimatedBytes()).isZero();
+        lines.forEach(sequential::add);
+        assertThat(flatten(sequential)).containsExactlyElementsOf(flatten(first));
+        assertThat(sequential.estimatedBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    @DisplayName("should take a fraction of the heap used by boxed LinkedHashMap/BigDecimal accumulators")
+    void footprint_should_be_much_smaller_than_boxed_structures() {
+        Random random = new Random(42);
+        List<ParsedLine> lines = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            long userId = random.nextInt(20_000);
+            lines.add(line(userId, userId * 10 + random.nextInt(3), random.nextInt(10_000),
+                    random.nextInt(100_000) + "." + String.format("%02d", random.nextInt(100)),
+                    LocalDate.of(2021, 1, 1).plusDays(random.nextInt(365))));
+        }
+
+        OrderAggregation columnar = new OrderAggregation();
+        BoxedAggregation boxed = new BoxedAggregation();
+        for (ParsedLine line : lines) {
+            columnar.add(line);
+            boxed.add(line);
+        }
+
+        long columnarBytes = GraphLayout.parseInstance(columnar).totalSize();
+        long boxedBytes = GraphLayout.parseInstance(boxed.users).totalSize();
+
+        assertThat(columnarBytes)
+                .as("colunar=%d bytes, boxed=%d bytes", columnarBytes, boxedBytes)
+                .isLessThan(boxedBytes / 3);
+    }
+
+    /**
+     * Estruturas usadas antes das colunas primitivas, mantidas aqui só como referência de memória.
+     */
+    private static final class BoxedAggregation {
+        final Map<Long, BoxedUser> users = new LinkedHashMap<>();
+
+        void add(ParsedLine parsed) {
+            BoxedOrder order = users.computeIfAbsent(parsed.getUserId(), id -> new BoxedUser(parsed.getUserName()))
+                    .orders.computeIfAbsent(parsed.getOrderId(), id -> new BoxedOrder(parsed.getDate()));
+            order.products.add(new BoxedProduct(parsed.getProductId(), parsed.getValue()));
+            order.total = order.total.add(parsed.getValue());
+        }
+    }
+
+    private static final class BoxedUser {
+        final String name;
+        final Map<Long, BoxedOrder> orders = new LinkedHashMap<>();
+        BoxedUser(String name) { this.name = name; }
+    }
+
+    private static final class BoxedOrder {
+        final LocalDate date;
+        final List<BoxedProduct> products = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        BoxedOrder(LocalDate date) { this.date = date; }
+    }
+
+    private record BoxedProduct(Long productId, BigDecimal value) {}
+}
@@ -0,0 +1,117 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.QueryProperties;
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.model.Money;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderProjectionRepository.OrderItemRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OrderCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2021, 12, 1);
+
+    private final List<OrderItemRow> table = new ArrayList<>();
+    private final OrderProjectionRepository repository = mock(OrderProjectionRepository.class);
+
+    private OrderCache cache(int maxOrders) {
+        QueryProperties properties = new QueryProperties();
+        properties.getCache().setMaxOrders(maxOrders);
+
+        doAnswer(inv -> {
+            OrderFilter filter = inv.getArgument(0);
+            Consumer<OrderItemRow> consumer = inv.getArgument(1);
+            table.stream()
+                    .filter(r -> !filter.byOrderId() || r.orderId() == filter.orderId())
+                    .filter(r -> !filter.byDateRange()
+                            || (!r.date().isBefore(filter.start()) && !r.date().isAfter(filter.end())))
+                    .sorted((a, b) -> a.userId() != b.userId()
+                            ? Long.compare(a.userId(), b.userId()) : Long.compare(a.orderId(), b.orderId()))
+                    .forEach(consumer);
+            return null;
+        }).when(repository).forEachRow(any(), any());
+
+        return new OrderCache(repository, properties);
+    }
+
+    private void order(long userId, long orderId, int dayOffset, String total) {
+        table.removeIf(r -> r.orderId() == orderId);
+        table.add(new OrderItemRow(userId, "User " + userId, orderId, DAY.plusDays(dayOffset),
+                Money.parse(total), 1L, Money.parse(total)));
+    }
+
+    private static List<Long> orderIds(List<UserResponseDto> users) {
+        return users.stream().flatMap(u -> u.getOrders().stream()).map(UserResponseDto.OrderDto::getOrderId).toList();
+    }
+
+    @Test
+    @DisplayName("should read an order from the database once and then serve it from memory")
+    void findOrder_should_read_through() {
+        order(1L, 10L, 0, "5.00");
+        OrderCache cache = cache(100);
+
+        assertThat(orderIds(cache.findOrder(10L))).containsExactly(10L);
+        assertThat(cache.findOrder(10L).getFirst().getOrders().getFirst().getTotal()).isEqualTo("5.00");
+
+        verify(repository, times(1)).forEachRow(any(), any());
+    }
+
+    @Test
+    @DisplayName("should answer ranges inside an already loaded range from the date index")
+    void findRange_should_use_loaded_ranges() {
+        order(2L, 20L, 0, "1.00");
+        order(1L, 21L, 1, "2.00");
+        order(1L, 22L, 5, "3.00");
+        OrderCache cache = cache(100);
+
+        assertThat(orderIds(cache.findRange(DAY, DAY.plusDays(5)))).containsExactly(21L, 22L, 20L);
+        assertThat(orderIds(cache.findRange(DAY.plusDays(1), DAY.plusDays(4)))).containsExactly(21L);
+        assertThat(orderIds(cache.findOrder(22L))).containsExactly(22L);
+
+        verify(repository, times(1)).forEachRow(any(), any());
+    }
+
+    @Test
+    @DisplayName("should reload an order and its day after a write invalidates them")
+    void invalidate_should_drop_orders_and_days() {
+        order(1L, 10L, 0, "5.00");
+        order(1L, 11L, 0, "6.00");
+        OrderCache cache = cache(100);
+        cache.findRange(DAY, DAY);
+
+        order(1L, 10L, 0, "7.00");
+        order(3L, 12L, 0, "8.00");
+        cache.invalidate(Set.of(10L, 12L), List.of(), Set.of(DAY));
+
+        assertThat(orderIds(cache.findRange(DAY, DAY))).containsExactly(10L, 11L, 12L);
+        assertThat(cache.findOrder(10L).getFirst().getOrders().getFirst().getTotal()).isEqualTo("7.00");
+        verify(repository, times(2)).forEachRow(any(), any());
+    }
+
+    @Test
+    @DisplayName("should evict the least recently used orders and stop trusting the ranges that held them")
+    void eviction_should_bound_size_and_invalidate_ranges() {
+        for (int i = 0; i < 5; i++) order(1L, 100L + i, i, "1.00");
+        OrderCache cache = cache(3);
+
+        cache.findRange(DAY, DAY.plusDays(1));
+        cache.findOrder(102L);
+        cache.findOrder(103L);
+        assertThat(cache.size()).isEqualTo(3);
+
+        assertThat(orderIds(cache.findRange(DAY, DAY.plusDays(1)))).containsExactly(100L, 101L);
+        verify(repository, times(4)).forEachRow(any(), any());
+    }
+}
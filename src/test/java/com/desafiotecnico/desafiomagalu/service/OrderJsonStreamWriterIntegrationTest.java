@@ -0,0 +1,96 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.desafiotecnico.desafiomagalu.repository.OrderFilter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderJsonStreamWriterIntegrationTest {
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @Autowired private OrderJsonStreamWriter writer;
+    @Autowired private ObjectMapper objectMapper;
+
+    private static String buildLine(long userId, String userName, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d", userId)
+                + String.format("%-45s", userName)
+                + String.format("%010d", orderId)
+                + String.format("%010d", productId)
+                + String.format("%12s", value).replace(' ', '0')
+                + dateYmd;
+    }
+
+    @BeforeEach
+    void ingest() {
+        String all = String.join("\n",
+                buildLine(2L, "Medeiros", 12345L, 111L, "000000256.24", "20201201"),
+                buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201"),
+                buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201"),
+                buildLine(2L, "Medeiros", 12345L, 122L, "000000256.24", "20201201"),
+                buildLine(1L, "Zarelli", 124L, 133L, "000000010.00", "20211215")) + "\n";
+        fileProcessingService.processFile(new MockMultipartFile("file", "legacy.txt", "text/plain", all.getBytes()));
+    }
+
+    private String write(OrderFilter filter, OrderJsonStreamWriter.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(filter, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("should stream the same users, orders and products returned by query()")
+    void write_json_should_match_query() throws Exception {
+        OrderFilter all = OrderFilter.of(Optional.empty(), Optional.empty(), Optional.empty());
+
+        List<UserResponseDto> streamed = objectMapper.readValue(
+                write(all, OrderJsonStreamWriter.Format.JSON), new TypeReference<>() {});
+        List<UserResponseDto> queried = fileProcessingService.query(Optional.empty(), Optional.empty(), Optional.empty());
+
+        assertThat(streamed).extracting(UserResponseDto::getUserId).containsExactly(1L, 2L);
+        queried.sort(Comparator.comparing(UserResponseDto::getUserId));
+        for (int i = 0; i < queried.size(); i++) {
+            assertThat(streamed.get(i).getName()).isEqualTo(queried.get(i).getName());
+            assertThat(streamed.get(i).getOrders())
+                    .usingRecursiveFieldByFieldElementComparatorIgnoringFields("products")
+                    .containsExactlyInAnyOrderElementsOf(queried.get(i).getOrders());
+        }
+        assertThat(streamed.get(0).getOrders().getFirst().getProducts())
+                .extracting(UserResponseDto.ProductDto::getProductId).containsExactly(111L, 122L);
+    }
+
+    @Test
+    @DisplayName("should emit one user per line in NDJSON and honour the date filter")
+    void write_ndjson_with_date_filter() throws Exception {
+        OrderFilter range = OrderFilter.of(Optional.empty(),
+                Optional.of(LocalDate.of(2021, 12, 10)), Optional.of(LocalDate.of(2021, 12, 31)));
+
+        String body = write(range, OrderJsonStreamWriter.Format.NDJSON);
+        String[] lines = body.split("\n");
+
+        assertThat(lines).hasSize(1);
+        UserResponseDto user = objectMapper.readValue(lines[0], UserResponseDto.class);
+        assertThat(user.getUserId()).isEqualTo(1L);
+        assertThat(user.getOrders()).extracting(UserResponseDto.OrderDto::getOrderId).containsExactly(124L);
+        assertThat(user.getOrders().getFirst().getTotal()).isEqualTo("10.00");
+    }
+}
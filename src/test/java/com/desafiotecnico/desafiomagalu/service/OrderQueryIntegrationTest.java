@@ -0,0 +1,102 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderQueryIntegrationTest {
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @PersistenceContext private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private static String buildLine(long userId, String userName, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d", userId)
+                + String.format("%-45s", userName)
+                + String.format("%010d", orderId)
+                + String.format("%010d", productId)
+                + String.format("%12s", value).replace(' ', '0')
+                + dateYmd;
+    }
+
+    @BeforeEach
+    void ingest() {
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            long userId = i % 5;
+            all.append(buildLine(userId, "User " + userId, 1_000L + i, 10L + (i % 4), "10.00", "202112" + String.format("%02d", 1 + i % 28))).append('\n');
+            all.append(buildLine(userId, "User " + userId, 1_000L + i, 20L + (i % 3), "5.50", "202112" + String.format("%02d", 1 + i % 28))).append('\n');
+        }
+        fileProcessingService.processFile(new MockMultipartFile("file", "legacy.txt", "text/plain", all.toString().getBytes()));
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    private static long products(List<UserResponseDto> users) {
+        return users.stream().flatMap(u -> u.getOrders().stream()).mapToLong(o -> o.getProducts().size()).sum();
+    }
+
+    private void assertNoEntityHydration() {
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should read all orders from the flat projection without loading entities")
+    void query_all_should_bypass_entity_hydration() {
+        List<UserResponseDto> result = fileProcessingService.query(Optional.empty(), Optional.empty(), Optional.empty());
+
+        assertThat(result).extracting(UserResponseDto::getUserId).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(result.getFirst().getOrders()).extracting(UserResponseDto.OrderDto::getOrderId)
+                .containsExactly(1_000L, 1_005L, 1_010L, 1_015L, 1_020L, 1_025L);
+        assertThat(products(result)).isEqualTo(60);
+        assertNoEntityHydration();
+    }
+
+    @Test
+    @DisplayName("should read a single order from the flat projection without loading entities")
+    void query_by_order_id_should_bypass_entity_hydration() {
+        List<UserResponseDto> result = fileProcessingService.query(Optional.of(1_007L), Optional.empty(), Optional.empty());
+
+        assertThat(result).hasSize(1);
+        assertThat(result.getFirst().getName()).isEqualTo("User 2");
+        assertThat(products(result)).isEqualTo(2);
+        assertNoEntityHydration();
+    }
+
+    @Test
+    @DisplayName("should read a date range from the flat projection without loading entities")
+    void query_by_date_range_should_bypass_entity_hydration() {
+        List<UserResponseDto> result = fileProcessingService.query(Optional.empty(),
+                Optional.of(LocalDate.of(2021, 12, 1)), Optional.of(LocalDate.of(2021, 12, 10)));
+
+        assertThat(result.stream().mapToLong(u -> u.getOrders().size()).sum()).isEqualTo(12);
+        assertThat(products(result)).isEqualTo(24);
+        assertNoEntityHydration();
+    }
+}
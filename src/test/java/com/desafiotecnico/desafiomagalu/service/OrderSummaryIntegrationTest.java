@@ -0,0 +1,111 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.dto.OrderSummaryDto;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.Grouping;
+import com.desafiotecnico.desafiomagalu.repository.OrderSummaryRepository.SummaryRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class OrderSummaryIntegrationTest {
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @Autowired private OrderSummaryService orderSummaryService;
+    @Autowired private OrderSummaryRepository orderSummaryRepository;
+    @Autowired private IngestionProperties ingestionProperties;
+
+    private static String line(long userId, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d%-45s%010d%010d%12s%s", userId, "User " + userId, orderId, productId,
+                value, dateYmd);
+    }
+
+    private static MockMultipartFile file(String... lines) {
+        return new MockMultipartFile("file", "legacy.txt", "text/plain", String.join("\n", lines).getBytes());
+    }
+
+    private List<SummaryRow> maintained() {
+        return orderSummaryRepository.findRange(null, null, Grouping.USER_DAY);
+    }
+
+    private List<SummaryRow> recomputed() {
+        orderSummaryRepository.rebuild();
+        return orderSummaryRepository.findRange(null, null, Grouping.USER_DAY);
+    }
+
+    @Test
+    @DisplayName("should keep the summary equal to a full recomputation across re-uploads, chunked orders and moved orders")
+    void ingestion_should_maintain_summary_incrementally() {
+        fileProcessingService.processFile(file(
+                line(1L, 10L, 100L, "000000010.00", "20211201"),
+                line(1L, 10L, 101L, "000000005.50", "20211201"),
+                line(2L, 20L, 100L, "000000001.00", "20211201"),
+                line(2L, 21L, 102L, "000000003.00", "20211202")));
+
+        assertThat(maintained())
+                .extracting(SummaryRow::userId, SummaryRow::date, SummaryRow::orders, SummaryRow::items, SummaryRow::revenueCents)
+                .containsExactly(
+                        tuple(1L, LocalDate.of(2021, 12, 1), 1L, 2L, 1550L),
+                        tuple(2L, LocalDate.of(2021, 12, 1), 1L, 1L, 100L),
+                        tuple(2L, LocalDate.of(2021, 12, 2), 1L, 1L, 300L));
+
+        // pedido 21 muda de usuário e de dia; pedido 10 ganha valor novo em um item
+        fileProcessingService.processFile(file(
+                line(1L, 10L, 101L, "000000007.50", "20211201"),
+                line(3L, 21L, 102L, "000000004.00", "20211203")));
+
+        // pedido 30 atravessa chunks
+        ingestionProperties.setChunkSize(1);
+        fileProcessingService.processFileStreaming(file(
+                line(3L, 30L, 100L, "000000002.00", "20211203"),
+                line(3L, 30L, 101L, "000000002.00", "20211203")));
+
+        List<SummaryRow> maintained = maintained();
+        assertThat(maintained).containsExactlyElementsOf(recomputed());
+        assertThat(maintained)
+                .extracting(SummaryRow::userId, SummaryRow::date, SummaryRow::orders, SummaryRow::items, SummaryRow::revenueCents)
+                .containsExactly(
+                        tuple(1L, LocalDate.of(2021, 12, 1), 1L, 2L, 750L),
+                        tuple(2L, LocalDate.of(2021, 12, 1), 1L, 1L, 100L),
+                        tuple(3L, LocalDate.of(2021, 12, 3), 2L, 3L, 800L));
+    }
+
+    @Test
+    @DisplayName("should answer range aggregations per user, per day and in total from the summary table")
+    void summarize_should_group_by_user_and_day() {
+        fileProcessingService.processFile(file(
+                line(1L, 10L, 100L, "000000010.00", "20211201"),
+                line(2L, 20L, 100L, "000000001.00", "20211201"),
+                line(2L, 21L, 102L, "000000003.00", "20211202"),
+                line(2L, 22L, 102L, "000000099.00", "20211230")));
+
+        OrderSummaryDto byUser = orderSummaryService.summarize(
+                Optional.of(LocalDate.of(2021, 12, 1)), Optional.of(LocalDate.of(2021, 12, 2)), "user");
+        assertThat(byUser.getOrders()).isEqualTo(3);
+        assertThat(byUser.getRevenue()).isEqualTo("14.00");
+        assertThat(byUser.getRows())
+                .extracting(OrderSummaryDto.RowDto::getUserId, OrderSummaryDto.RowDto::getDate, OrderSummaryDto.RowDto::getRevenue)
+                .containsExactly(tuple(1L, null, "10.00"), tuple(2L, null, "4.00"));
+
+        OrderSummaryDto byDay = orderSummaryService.summarize(Optional.empty(), Optional.empty(), "day");
+        assertThat(byDay.getStartDate()).isNull();
+        assertThat(byDay.getRows())
+                .extracting(OrderSummaryDto.RowDto::getDate, OrderSummaryDto.RowDto::getOrders)
+                .containsExactly(tuple("2021-12-01", 2L), tuple("2021-12-02", 1L), tuple("2021-12-30", 1L));
+    }
+}
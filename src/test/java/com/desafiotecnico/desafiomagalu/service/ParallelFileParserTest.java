@@ -0,0 +1,124 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.config.IngestionProperties;
+import com.desafiotecnico.desafiomagalu.exception.BadFileFormatException;
+import com.desafiotecnico.desafiomagalu.parser.FixedWidthRecordParser;
+import com.desafiotecnico.desafiomagalu.parser.LegacyRecordReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelFileParserTest {
+
+    private final FixedWidthRecordParser recordParser = new FixedWidthRecordParser();
+    private final ParallelFileParser parallelParser = new ParallelFileParser(recordParser, properties(4));
+
+    private static IngestionProperties properties(int parallelism) {
+        IngestionProperties properties = new IngestionProperties();
+        properties.setParallelism(parallelism);
+        return properties;
+    }
+
+    private static String buildLine(long userId, String userName, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d", userId)
+                + String.format("%-45s", userName)
+                + String.format("%010d", orderId)
+                + String.format("%010d", productId)
+                + String.format("%12s", value).replace(' ', '0')
+                + dateYmd;
+    }
+
+    private static byte[] generateFile(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(lines * 97);
+        for (int i = 0; i < lines; i++) {
+            long userId = random.nextInt(500);
+            long orderId = userId * 1_000 + random.nextInt(20);
+            String date = LocalDate.of(2021, 1, 1).plusDays(orderId % 365).toString().replace("-", "");
+            sb.append(buildLine(userId, "User " + userId, orderId, random.nextInt(5_000),
+                    random.nextInt(100_000) + "." + String.format("%02d", random.nextInt(100)), date));
+            sb.append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<String> flatten(OrderAggregation aggregation) {
+        List<String> rows = new ArrayList<>();
+        for (int u = 0; u < aggregation.userCount(); u++) {
+            rows.add("U" + aggregation.userId(u) + ":" + aggregation.userName(u));
+            for (int o = aggregation.firstOrder(u); o != OrderAggregation.END; o = aggregation.nextOrder(o)) {
+                rows.add("O" + aggregation.orderId(o) + ":" + aggregation.orderDate(o) + ":" + aggregation.orderTotalCents(o));
+                for (int l = aggregation.firstLine(o); l != OrderAggregation.END; l = aggregation.nextLine(l)) {
+                    rows.add("P" + aggregation.lineProductId(l) + ":" + aggregation.lineValueCents(l));
+                }
+            }
+        }
+        return rows;
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelParser.shutdown();
+    }
+
+    @Test
+    @DisplayName("should aggregate exactly like the sequential reader, including first-seen ordering")
+    void parallelParse_should_match_sequential_aggregation() throws Exception {
+        byte[] content = generateFile(30_000, 7L);
+
+        OrderAggregation sequential = new OrderAggregation();
+        new LegacyRecordReader(recordParser).read(new ByteArrayInputStream(content), sequential::add);
+
+        OrderAggregation parallel = parallelParser.parse(ByteBuffer.wrap(content));
+
+        assertThat(parallel.lineCount()).isEqualTo(30_000);
+        assertThat(flatten(parallel)).containsExactlyElementsOf(flatten(sequential));
+    }
+
+    @Test
+    @DisplayName("should propagate BadFileFormatException raised by any split")
+    void parallelParse_should_propagate_bad_lines() {
+        byte[] valid = generateFile(5_000, 11L);
+        byte[] content = new byte[valid.length + 10];
+        System.arraycopy(valid, 0, content, 0, valid.length);
+        System.arraycopy("too short\n".getBytes(StandardCharsets.ISO_8859_1), 0, content, valid.length, 10);
+
+        assertThrows(BadFileFormatException.class, () -> parallelParser.parse(ByteBuffer.wrap(content)));
+    }
+
+    @Test
+    @DisplayName("should report rejected lines of every split in file order with absolute line numbers")
+    void parallelParse_should_number_rejected_lines_across_splits() throws Exception {
+        byte[] content = generateFile(30_000, 13L);
+        // corrompe a data de algumas linhas espalhadas pelo arquivo (todas as faixas, inclusive a última)
+        List<Long> corrupted = List.of(1L, 9_999L, 20_001L, 30_000L);
+        long line = 1;
+        for (int i = 0; i < content.length; i++) {
+            if (corrupted.contains(line) && (i == 0 || content[i - 1] == '\n')) content[i + 87] = 'X';
+            if (content[i] == '\n') line++;
+        }
+
+        List<Long> sequential = new ArrayList<>();
+        new LegacyRecordReader(recordParser, (n, e) -> sequential.add(n)).read(new ByteArrayInputStream(content), r -> { });
+
+        List<Long> parallel = new ArrayList<>();
+        ParallelFileParser.Result result = parallelParser.parse(ByteBuffer.wrap(content), 0, content.length, 0,
+                (n, e) -> parallel.add(n));
+
+        assertThat(sequential).containsExactlyElementsOf(corrupted);
+        assertThat(parallel).containsExactlyElementsOf(corrupted);
+        assertThat(result.lines()).isEqualTo(30_000);
+        assertThat(result.aggregation().lineCount()).isEqualTo(30_000 - corrupted.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Profile {@code prod} com o banco em memória: o schema vem de {@code db/schema.sql} e o Hibernate só o valida.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prod-profile;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("prod")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ProdProfileIntegrationTest {
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @Autowired private QueryWarmup queryWarmup;
+    @Autowired private OrderCache orderCache;
+    @Autowired private JdbcTemplate jdbc;
+
+    private static String line(long userId, long orderId, long productId, String dateYmd) {
+        return String.format("%010d%-45s%010d%010d%12s%s", userId, "User " + userId, orderId, productId,
+                "000000010.00", dateYmd);
+    }
+
+    @Test
+    @DisplayName("should create the explicit schema and answer date ranges with a range scan on idx_orders_date")
+    void schema_should_index_orders_by_date() {
+        List<String> indexes = jdbc.queryForList(
+                "SELECT index_name FROM information_schema.indexes WHERE table_name = 'ORDERS'", String.class);
+        assertThat(indexes).contains("IDX_ORDERS_DATE", "IDX_ORDERS_USER");
+
+        String plan = jdbc.queryForObject(
+                "EXPLAIN SELECT o.order_id FROM orders o WHERE o.date BETWEEN DATE '2021-12-01' AND DATE '2021-12-07'",
+                String.class);
+        assertThat(plan).contains("IDX_ORDERS_DATE");
+    }
+
+    @Test
+    @DisplayName("should preload the most recent days into the order cache on warm-up")
+    void warmUp_should_load_recent_days() {
+        String content = String.join("\n",
+                line(1L, 10L, 100L, "20211201"),
+                line(1L, 11L, 100L, "20211210"),
+                line(2L, 12L, 101L, "20211215"));
+        fileProcessingService.processFile(new MockMultipartFile("file", "legacy.txt", "text/plain", content.getBytes()));
+        orderCache.clear();
+
+        queryWarmup.warmUp();
+
+        assertThat(orderCache.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,96 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.UserResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class QueryResponseCacheIntegrationTest {
+
+    private static final Optional<LocalDate> START = Optional.of(LocalDate.of(2021, 12, 1));
+    private static final Optional<LocalDate> END = Optional.of(LocalDate.of(2021, 12, 2));
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @Autowired private QueryResponseCache queryResponseCache;
+    @Autowired private ObjectMapper objectMapper;
+
+    private static String line(long userId, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d%-45s%010d%010d%12s%s", userId, "User " + userId, orderId, productId,
+                value, dateYmd);
+    }
+
+    private void upload(String... lines) {
+        fileProcessingService.processFile(
+                new MockMultipartFile("file", "legacy.txt", "text/plain", String.join("\n", lines).getBytes()));
+    }
+
+    private QueryResponseCache.Rendered range() {
+        return queryResponseCache.find(Optional.empty(), START, END);
+    }
+
+    @Test
+    @DisplayName("should serve repeated queries from the serialized cache until an upload changes the data")
+    void find_should_reuse_rendered_response_until_data_changes() throws Exception {
+        upload(line(1L, 10L, 100L, "000000010.00", "20211201"),
+                line(2L, 20L, 100L, "000000001.00", "20211202"));
+
+        QueryResponseCache.Rendered first = range();
+        assertThat(range()).isSameAs(first);
+        assertThat(first.json()).isEqualTo(objectMapper.writeValueAsBytes(
+                fileProcessingService.query(Optional.empty(), START, END)));
+        assertThat(first.gzip()).isNull();
+
+        // upload fora do intervalo: nova versão, mesmo conteúdo e mesmo ETag
+        upload(line(3L, 30L, 100L, "000000005.00", "20211215"));
+        QueryResponseCache.Rendered afterUnrelated = range();
+        assertThat(afterUnrelated).isNotSameAs(first);
+        assertThat(afterUnrelated.etag(false)).isEqualTo(first.etag(false));
+        assertThat(afterUnrelated.matches(first.etag(false))).isTrue();
+
+        upload(line(2L, 20L, 100L, "000000002.00", "20211202"));
+        QueryResponseCache.Rendered changed = range();
+        assertThat(changed.etag(false)).isNotEqualTo(first.etag(false));
+        assertThat(changed.matches(first.etag(false))).isFalse();
+        UserResponseDto[] users = objectMapper.readValue(changed.json(), UserResponseDto[].class);
+        assertThat(users[1].getOrders().getFirst().getTotal()).isEqualTo("2.00");
+        assertThat(queryResponseCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should pre-compress large responses and match weak, gzip and wildcard validators")
+    void find_should_gzip_large_responses_and_match_etags() throws Exception {
+        String[] lines = new String[50];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = line(i + 1, 100 + i, 100L, "000000010.00", "20211201");
+        }
+        upload(lines);
+
+        QueryResponseCache.Rendered rendered = range();
+        assertThat(rendered.gzip()).isNotNull().hasSizeLessThan(rendered.json().length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(rendered.gzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(rendered.json());
+        }
+
+        String etag = rendered.etag(false);
+        assertThat(rendered.etag(true)).isNotEqualTo(etag).endsWith("-gzip\"");
+        assertThat(rendered.matches("\"other\", W/" + etag)).isTrue();
+        assertThat(rendered.matches(rendered.etag(true))).isTrue();
+        assertThat(rendered.matches("*")).isTrue();
+        assertThat(rendered.matches("\"other\"")).isFalse();
+        assertThat(rendered.matches(null)).isFalse();
+    }
+}
@@ -0,0 +1,104 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.OrderSummaryDto;
+import com.desafiotecnico.desafiomagalu.dto.SnapshotDto;
+import com.desafiotecnico.desafiomagalu.exception.InvalidSnapshotException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SnapshotServiceIntegrationTest {
+
+    @Autowired private FileProcessingService fileProcessingService;
+    @Autowired private SnapshotService snapshotService;
+    @Autowired private OrderSummaryService orderSummaryService;
+    @Autowired private JdbcTemplate jdbc;
+
+    private static String line(long userId, String name, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d%-45s%010d%010d%12s%s", userId, name, orderId, productId, value, dateYmd);
+    }
+
+    private void upload(String... lines) {
+        fileProcessingService.processFile(
+                new MockMultipartFile("file", "legacy.txt", "text/plain", String.join("\n", lines).getBytes()));
+    }
+
+    private byte[] export() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshotService.export(Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private SnapshotDto restore(byte[] snapshot) throws Exception {
+        return snapshotService.restore(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+    }
+
+    private List<Map<String, Object>> dump() {
+        return jdbc.queryForList("""
+                SELECT u.user_id, u.name, o.order_id, o.date, o.total, i.product_id, i.item_value, f.content_hash
+                FROM users u
+                JOIN orders o ON o.user_id = u.user_id
+                JOIN order_items i ON i.order_id = o.order_id
+                LEFT JOIN order_fingerprints f ON f.order_id = o.order_id
+                ORDER BY o.order_id, i.product_id""");
+    }
+
+    @Test
+    @DisplayName("should restore exactly the exported rows and rebuild the daily summary")
+    void restore_should_round_trip_export() throws Exception {
+        upload(line(1L, "Zarelli", 10L, 100L, "000000010.00", "20211201"),
+                line(1L, "Zarelli", 10L, 101L, "000000005.50", "20211201"),
+                line(2L, "Medeiros", 20L, 100L, "000000001.00", "20211201"),
+                line(2L, "Medeiros", 21L, 102L, "000000003.00", "20211202"),
+                line(3L, "Zarelli", 30L, 9_999_999_999L, "000000099.99", "20220315"));
+        List<Map<String, Object>> before = dump();
+        OrderSummaryDto summaryBefore = orderSummaryService.summarize(Optional.empty(), Optional.empty(), "user");
+        byte[] snapshot = export();
+
+        upload(line(4L, "Outro", 40L, 100L, "000000001.00", "20211201"),
+                line(1L, "Zarelli", 10L, 100L, "000000020.00", "20211201"));
+
+        SnapshotDto restored = restore(snapshot);
+
+        assertThat(restored.getUsers()).isEqualTo(3);
+        assertThat(restored.getProducts()).isEqualTo(4);
+        assertThat(restored.getOrders()).isEqualTo(4);
+        assertThat(restored.getItems()).isEqualTo(5);
+        assertThat(restored.getBytes()).isEqualTo(snapshot.length);
+        assertThat(dump()).isEqualTo(before);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(3);
+        assertThat(orderSummaryService.summarize(Optional.empty(), Optional.empty(), "user")).isEqualTo(summaryBefore);
+    }
+
+    @Test
+    @DisplayName("should reject a truncated or foreign snapshot and keep the current data")
+    void restore_should_reject_invalid_snapshot() throws Exception {
+        upload(line(1L, "Zarelli", 10L, 100L, "000000010.00", "20211201"),
+                line(2L, "Medeiros", 20L, 101L, "000000001.00", "20211202"));
+        List<Map<String, Object>> before = dump();
+        byte[] snapshot = export();
+
+        assertThrows(InvalidSnapshotException.class,
+                () -> restore(Arrays.copyOf(snapshot, snapshot.length - 3)));
+        assertThrows(InvalidSnapshotException.class, () -> restore("not a snapshot".getBytes()));
+
+        assertThat(dump()).isEqualTo(before);
+    }
+}
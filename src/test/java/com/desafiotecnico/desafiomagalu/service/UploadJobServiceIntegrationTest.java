@@ -0,0 +1,80 @@
+package com.desafiotecnico.desafiomagalu.service;
+
+import com.desafiotecnico.desafiomagalu.dto.UploadJobDto;
+import com.desafiotecnico.desafiomagalu.repository.OrderRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UploadJobServiceIntegrationTest {
+
+    @Autowired private UploadJobService uploadJobService;
+    @Autowired private OrderRepository orderRepository;
+
+    private static String buildLine(long userId, String userName, long orderId, long productId, String value, String dateYmd) {
+        return String.format("%010d", userId)
+                + String.format("%-45s", userName)
+                + String.format("%010d", orderId)
+                + String.format("%010d", productId)
+                + String.format("%12s", value).replace(' ', '0')
+                + dateYmd;
+    }
+
+    private UploadJobDto awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            UploadJobDto job = uploadJobService.find(jobId).orElseThrow();
+            if (job.getFinishedAt() != null) return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("job " + jobId + " não terminou a tempo");
+    }
+
+    @Test
+    @DisplayName("should process an async upload in background and expose progress and result")
+    void submit_should_process_in_background() throws Exception {
+        String all = String.join("\n",
+                buildLine(1L, "Zarelli", 123L, 111L, "000000512.24", "20211201"),
+                buildLine(1L, "Zarelli", 123L, 122L, "000000512.24", "20211201"),
+                buildLine(2L, "Medeiros", 12345L, 111L, "000000256.24", "20201201")) + "\n";
+
+        UploadJobDto submitted = uploadJobService.submit(
+                new MockMultipartFile("file", "legacy.txt", "text/plain", all.getBytes()));
+
+        assertThat(submitted.getJobId()).isNotBlank();
+        assertThat(submitted.getStatus()).isIn("QUEUED", "RUNNING");
+
+        UploadJobDto finished = awaitFinished(submitted.getJobId());
+
+        assertThat(finished.getStatus()).isEqualTo("COMPLETED");
+        assertThat(finished.getLinesParsed()).isEqualTo(3);
+        assertThat(finished.getRowsPersisted()).isPositive();
+        assertThat(uploadJobService.findResult(submitted.getJobId())).hasValueSatisfying(r -> {
+            assertThat(r.getLines()).isEqualTo(3);
+            assertThat(r.getOrders()).isEqualTo(2);
+        });
+        assertThat(orderRepository.findByOrderId(123L).orElseThrow().getTotal())
+                .isEqualByComparingTo(new BigDecimal("1024.48"));
+    }
+
+    @Test
+    @DisplayName("should mark the job as failed when the file has an invalid line")
+    void submit_should_fail_job_on_bad_file() throws Exception {
+        UploadJobDto submitted = uploadJobService.submit(
+                new MockMultipartFile("file", "legacy.txt", "text/plain", "linha curta\n".getBytes()));
+
+        UploadJobDto finished = awaitFinished(submitted.getJobId());
+
+        assertThat(finished.getStatus()).isEqualTo("FAILED");
+        assertThat(finished.getError()).contains("Linha inválida");
+        assertThat(uploadJobService.findResult(submitted.getJobId())).isEmpty();
+    }
+}